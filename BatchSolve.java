@@ -0,0 +1,243 @@
+/*
+ * Main class to solve many cube states with one set of heuristic tables.
+ */
+
+package rubik;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Solves a batch of cubes in one run. The heuristic tables are loaded once
+ * and shared, while every worker thread keeps its own Searcher, so cubes are
+ * solved independently and concurrently on a fixed pool. Each result is
+ * printed as soon as it is found, as a tab-separated line of the cube name,
+ * solution, number of moves and latency in milliseconds, or of the cube
+ * name and ERROR or CANCELLED. A summary of the throughput follows on
+ * standard error, counting failed and cancelled cubes apart. Repeated and equivalent cubes
+ * may be answered from a SolutionCache.
+ *
+ * Cubes are read from a directory of cube files, from a list file or, given
+ * "-", from standard input. Lists hold one cube per line, written as in
+ * Cube.parse; blank lines and lines starting with '#' are skipped. Cubes that
+ * fail CubeValidator are reported without being queued.
+ */
+public class BatchSolve {
+    
+    /**
+     * Number of cubes queued or being solved per worker thread, which bounds
+     * memory while a long list is read.
+     */
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+    
+    private final ExecutorService pool;
+    private final Semaphore permits;
+    private final ThreadLocal<Searcher> searchers;
+    private final PrintStream out;
+    private final SolutionCache cache;
+    private final AtomicLong solved = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong latency = new AtomicLong();
+    private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+    private final long start = System.nanoTime();
+    
+    /**
+     * @param heuristic corner and edge heuristic shared by every searcher
+     * @param threads number of worker threads
+     * @param out receives a line per cube
+     */
+    public BatchSolve(Heuristic heuristic, int threads, PrintStream out) {
+        this(heuristic, threads, out, null);
+    }
+    
+    /**
+     * @param heuristic corner and edge heuristic shared by every searcher
+     * @param threads number of worker threads
+     * @param out receives a line per cube
+     * @param cache cache consulted before solving, or null
+     */
+    public BatchSolve(Heuristic heuristic, int threads, PrintStream out, SolutionCache cache) {
+        threads = Math.max(1, threads);
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.permits = new Semaphore(threads * IN_FLIGHT_PER_THREAD);
+        this.searchers = ThreadLocal.withInitial(() -> new Searcher(heuristic));
+        this.out = out;
+        this.cache = cache;
+    }
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        
+        if (args.length == 0) {
+            System.err.println("Usage: BatchSolve <directory | list file | -> [threads]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        
+        new PatternDatabaseStore().loadAll();
+        SolutionCache cache = new SolutionCache();
+        cache.load();
+        BatchSolve batch = new BatchSolve(IDAStar.heuristic, threads, System.out, cache);
+        
+        try {
+            if (args[0].equals("-")) {
+                batch.submitList("stdin", new BufferedReader(
+                        new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+            } else {
+                Path path = Paths.get(args[0]);
+                if (Files.isDirectory(path)) {
+                    batch.submitDirectory(path);
+                } else {
+                    try (BufferedReader reader = Files.newBufferedReader(path)) {
+                        batch.submitList(path.getFileName().toString(), reader);
+                    }
+                }
+            }
+        } finally {
+            batch.finish();
+            cache.save();
+        }
+        
+    }
+    
+    /**
+     * Queues every file of a directory, in name order, as one cube.
+     * @param directory directory of cube files
+     * @throws IOException if the directory cannot be listed
+     * @throws InterruptedException
+     */
+    public void submitDirectory(Path directory) throws IOException, InterruptedException {
+        
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file))
+                    files.add(file);
+            }
+        }
+        Collections.sort(files);
+        
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            try {
+                submit(name, String.join("", Files.readAllLines(file)));
+            } catch (IOException e) {
+                report(name, e.getMessage());
+            }
+        }
+        
+    }
+    
+    /**
+     * Queues every cube of a list, named by the source and line number.
+     * @param source name of the list
+     * @param reader list of cubes, one per line
+     * @throws IOException if the list cannot be read
+     * @throws InterruptedException
+     */
+    public void submitList(String source, BufferedReader reader) throws IOException, InterruptedException {
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#"))
+                submit(source + ":" + number, line);
+        }
+    }
+    
+    /**
+     * Queues one cube, waiting while the pool already has enough work.
+     * @param name name printed with the result
+     * @param facelets cube state, as in Cube.parse
+     * @throws InterruptedException
+     */
+    public void submit(String name, String facelets) throws InterruptedException {
+        
+        byte[] state;
+        try {
+            state = Cube.parse(facelets);
+        } catch (IllegalArgumentException e) {
+            report(name, e.getMessage());
+            return;
+        }
+        int result = CubeValidator.validate(state);
+        if (result != CubeValidator.VALID) {
+            report(name, "Invalid cube state: " + CubeValidator.describe(result));
+            return;
+        }
+        
+        permits.acquire();
+        pool.execute(() -> {
+            try {
+                long begin = System.nanoTime();
+                Searcher searcher = searchers.get();
+                String solution = cache == null ? searcher.solve(state) : cache.solve(state, searcher::solve);
+                long time = System.nanoTime() - begin;
+                solved.incrementAndGet();
+                latency.addAndGet(time);
+                maxLatency.accumulate(time);
+                out.println(name + "\t" + solution + "\t" + solution.length() / 2
+                        + "\t" + String.format("%.3f", time / 1e6));
+            } catch (CancellationException e) {
+                cancelled.incrementAndGet();
+                out.println(name + "\tCANCELLED");
+            } catch (RuntimeException e) {
+                report(name, e.getMessage());
+            } finally {
+                permits.release();
+            }
+        });
+        
+    }
+    
+    /**
+     * Waits for every queued cube and prints the summary to standard error.
+     * @throws InterruptedException
+     */
+    public void finish() throws InterruptedException {
+        
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long count = solved.get();
+        System.err.println(String.format(
+                "Solved %d cubes (%d failed, %d cancelled) in %.3f s: %.1f cubes/s, "
+                        + "latency mean %.3f ms, max %.3f ms",
+                count, failed.get(), cancelled.get(), seconds, count / seconds,
+                count == 0 ? 0 : latency.get() / 1e6 / count, maxLatency.get() / 1e6));
+        if (cache != null)
+            System.err.println("Solution cache: " + cache.hits() + " hits, " + cache.misses() + " misses");
+        
+    }
+    
+    /**
+     * Prints a cube that could not be solved.
+     * @param name name of the cube
+     * @param message reason
+     */
+    private void report(String name, String message) {
+        failed.incrementAndGet();
+        out.println(name + "\tERROR\t" + message);
+    }
+    
+}
@@ -22,35 +22,63 @@ public class Cube {
     protected final static String GOAL_STATE = "RRRRRRRRRGGGYYYBBBGGGYYYBBBGGGYYYBBBOOOOOOOOOWWWWWWWWW";
     public byte[] cube;
     
+    /**
+     * Facelets of each corner position. Each triple starts with the red or
+     * orange facelet and continues clockwise, so the index of the red/orange
+     * color within a triple is the orientation of the corner cubie.
+     */
     public final static byte[][] CORNERS = {
         {0, 9, 51},
-        {2, 17, 53},
-        {6, 11, 12},
-        {8, 14, 15},
-        {27, 42, 45},
-        {35, 44, 47},
-        {29, 30, 36},
-        {32, 33, 38}
+        {2, 53, 17},
+        {6, 12, 11},
+        {8, 15, 14},
+        {42, 45, 27},
+        {44, 35, 47},
+        {36, 29, 30},
+        {38, 32, 33}
     };
     
+    /**
+     * Facelets of the first six edge positions. Each pair starts with the
+     * facelet that decides the orientation of the edge cubie: the red/orange
+     * facelet, or the yellow/white facelet for edges without either color.
+     */
     public final static byte[][] EDGES_1 = {
         {1, 52},
         {3, 10},
         {5, 16},
         {7, 13},
-        {18, 48},
-        {20, 21}
+        {48, 18},
+        {21, 20}
     };
     
+    /**
+     * Facelets of the last six edge positions, ordered as in EDGES_1.
+     */
     public final static byte[][] EDGES_2 = {
         {23, 24},
-        {26, 50},
-        {28, 39},
-        {31, 37},
-        {34, 41},
+        {50, 26},
+        {39, 28},
+        {37, 31},
+        {41, 34},
         {43, 46}
     };
     
+    /**
+     * Facelets of all twelve edge positions, EDGES_1 followed by EDGES_2.
+     */
+    public final static byte[][] EDGES = new byte[12][];
+    
+    static {
+        System.arraycopy(EDGES_1, 0, EDGES, 0, EDGES_1.length);
+        System.arraycopy(EDGES_2, 0, EDGES, EDGES_1.length, EDGES_2.length);
+    }
+    
+    /**
+     * Face opposite each face, indexed by face.
+     */
+    public final static byte[] OPPOSITE = {ORANGE, BLUE, WHITE, GREEN, RED, YELLOW};
+    
     public final static HashMap<Byte, byte[]> FACES = new HashMap<>();
     public final static HashMap<Byte, byte[]> SIDES = new HashMap<>();
     
@@ -254,12 +282,12 @@ public class Cube {
      * @throws IOException 
      */
     public final byte[] readFile(String filename) throws FileNotFoundException, IOException {
-
+        
         FileReader fr = new FileReader(filename);
         BufferedReader br = new BufferedReader(fr);
         String line = br.readLine();
         byte[] temp = new byte[54];
-
+        
         while (line != null) {
             line = line.trim();
             char[] c = line.toCharArray();
@@ -294,6 +322,51 @@ public class Cube {
         return temp;
     }
     
+    /**
+     * Parses a cube state written as the colors of its facelets in order,
+     * one letter (R, G, Y, B, O or W) per facelet as in GOAL_STATE. The lines
+     * of a cube file joined together are in this form; whitespace is ignored.
+     * @param facelets colors of the 54 facelets
+     * @return byte array of cube state
+     * @throws IllegalArgumentException if a color is unknown or there are not
+     *         54 facelets
+     */
+    public static byte[] parse(String facelets) {
+        
+        byte[] temp = new byte[54];
+        int count = 0;
+        
+        for (char c : facelets.toCharArray()) {
+            if (Character.isWhitespace(c))
+                continue;
+            int color = "RGYBOW".indexOf(c);
+            if (color < 0)
+                throw new IllegalArgumentException("Unexpected character found: " + c);
+            if (count == temp.length)
+                throw new IllegalArgumentException("More than 54 facelets");
+            temp[count++] = (byte)color;
+        }
+        if (count != temp.length)
+            throw new IllegalArgumentException("Expected 54 facelets, found " + count);
+        return temp;
+        
+    }
+    
+    /**
+     * Checks whether a face turn can be skipped after the previous turn of a
+     * move sequence. Turning the same face twice in a row is never needed, 
+     * and turns of opposite faces commute, so they are only generated with
+     * the lower face first.
+     * @param last face turned by the previous move, or -1 if there is none
+     * @param face face to be turned
+     * @return true if the sequence has a shorter or equivalent counterpart
+     */
+    public static boolean isRedundant(int last, int face) {
+        if (last < 0)
+            return false;
+        return face == last || (face == OPPOSITE[last] && face < last);
+    }
+    
     /**
      * Handles cube rotations based on face and returns the state reached after
      * performing the rotation.
@@ -304,9 +377,14 @@ public class Cube {
      */
     public static byte[] rotate(byte[] state, Byte face, int turns) {
         
-        if (turns % 4 == 0)
+        turns = (turns % 4 + 4) % 4;
+        if (turns == 0)
             return state;
         
+        //Each case below performs a single quarter turn from the original state
+        if (turns > 1)
+            return rotate(rotate(state, face, 1), face, turns - 1);
+        
         byte[] currentFace = FACES.get(face);
         byte[] faceSides = Cube.SIDES.get(face);
         
@@ -314,7 +392,7 @@ public class Cube {
             return state;
         
         byte[] newState = state.clone();
-        
+
 //        for (int i = 0; i < currentFace.length; i++)
 //            newState[currentFace[(i + (2*turns)) % 8]] = state[currentFace[i]];
 //        
@@ -334,7 +412,7 @@ public class Cube {
                     newState[3] = state[currentFace[6]];
                     newState[0] = state[currentFace[5]];
                     newState[1] = state[currentFace[3]];
-
+                    
                     newState[9] = state[faceSides[8]];
                     newState[10] = state[faceSides[7]];
                     newState[11] = state[faceSides[6]];
@@ -359,7 +437,7 @@ public class Cube {
                     newState[18] = state[currentFace[6]];
                     newState[9] = state[currentFace[5]];
                     newState[10] = state[currentFace[3]];
-
+                    
                     newState[0] = state[faceSides[9]];
                     newState[3] = state[faceSides[10]];
                     newState[6] = state[faceSides[11]];
@@ -384,7 +462,7 @@ public class Cube {
                     newState[21] = state[currentFace[6]];
                     newState[12] = state[currentFace[5]];
                     newState[13] = state[currentFace[3]];
-
+                    
                     newState[6] = state[faceSides[9]];
                     newState[7] = state[faceSides[10]];
                     newState[8] = state[faceSides[11]];
@@ -409,7 +487,7 @@ public class Cube {
                     newState[24] = state[currentFace[6]];
                     newState[15] = state[currentFace[5]];
                     newState[16] = state[currentFace[3]];
-
+                    
                     newState[2] = state[faceSides[11]];
                     newState[5] = state[faceSides[10]];
                     newState[8] = state[faceSides[9]];
@@ -434,7 +512,7 @@ public class Cube {
                     newState[39] = state[currentFace[6]];
                     newState[36] = state[currentFace[5]];
                     newState[37] = state[currentFace[3]];
-
+                    
                     newState[27] = state[faceSides[8]];
                     newState[28] = state[faceSides[7]];
                     newState[29] = state[faceSides[6]];
@@ -459,7 +537,7 @@ public class Cube {
                     newState[48] = state[currentFace[6]];
                     newState[45] = state[currentFace[5]];
                     newState[46] = state[currentFace[3]];
-
+                    
                     newState[0] = state[faceSides[5]];
                     newState[1] = state[faceSides[4]];
                     newState[2] = state[faceSides[3]];
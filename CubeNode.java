@@ -1,7 +1,6 @@
 package rubik;
 
 import java.util.ArrayList;
-import java.util.Map;
 
 /**
  * Keeps track of each state and its heuristic value from the breadth-first
@@ -12,9 +11,15 @@ public class CubeNode implements Comparable<CubeNode> {
     
     protected byte[] state;
     protected int heuristic;
+    protected int[] heuristics;
     protected int g;
     protected String path;
     
+    /**
+     * Face turned by the move that reached this node, or -1 for the start.
+     */
+    protected byte face = -1;
+    
     /**
      * CubeNode constructor
      * @param state state of the cube
@@ -52,33 +57,29 @@ public class CubeNode implements Comparable<CubeNode> {
     }
     
     /**
-     * Generates all the successors for a node (for IDA* search)
+     * Generates all the successors for a node (for IDA* search). Every face
+     * is turned by one, two and three quarter turns, skipping sequences that
+     * Cube.isRedundant rules out.
      * @param node node successors are generated for
      * @return ArrayList of successor CubeNodes
      */
     public static ArrayList<CubeNode> getSuccessors(CubeNode node) {
         ArrayList<CubeNode> successors = new ArrayList<>();
-        for (Map.Entry<Byte, byte[]> face : Cube.FACES.entrySet()) {
-            byte[] newState = Cube.rotate(node.state, face.getKey(), 1);
-//            int encCorner = Integer.parseInt(KorfAlgorithm.encodeCorners(newState));
-//            int encEdgesOne = Integer.parseInt(KorfAlgorithm.encodeFirstEdges(newState));
-//            int encEdgesTwo = Integer.parseInt(KorfAlgorithm.encodeSecondEdges(newState));
-            int encCorner = 0;
-            int encEdgesOne = 0;
-            int encEdgesTwo = 0;
-            int[] heuristics = new int[3];
+        for (byte face : Cube.FACES.keySet()) {
+            if (Cube.isRedundant(node.face, face))
+                continue;
             
-            heuristics[0] = IDAStar.cornerHeuristics[encCorner];
-            heuristics[1] = IDAStar.edgeFirstHeuristics[encEdgesOne];
-            heuristics[2] = IDAStar.edgeSecondHeuristics[encEdgesTwo];
-            
-            int max = heuristics[0];
-            for (int i = 0; i < heuristics.length; i++) {
-                if (heuristics[i] > max) 
-                    max = heuristics[i];
+            byte[] newState = node.state;
+            for (int turns = 1; turns < 4; turns++) {
+                newState = Cube.rotate(newState, face, 1);
+                int[] heuristics = new int[IDAStar.heuristic.size()];
+                int max = IDAStar.heuristic.evaluate(newState, node.heuristics, heuristics);
+                
+                CubeNode successor = new CubeNode(newState, max, node.path + face + turns);
+                successor.heuristics = heuristics;
+                successor.face = face;
+                successors.add(successor);
             }
-            
-            successors.add(new CubeNode(newState, IDAStar.cornerHeuristics[encCorner], node.path + face.getKey() + "1"));
         }
         return successors;
     }
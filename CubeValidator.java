@@ -0,0 +1,192 @@
+package rubik;
+
+/**
+ * Checks whether a cube state can be reached from the goal by face turns.
+ * Corners, edges and centers together cover all 54 facelets, so a single
+ * pass over the cubies reads every facelet once and gathers everything the
+ * checks need: the color counts, the cubie at each position, the corner
+ * twists, the edge flips and the parities of both permutations. A corner
+ * position must hold a real corner cubie, with its colors in the cubie's
+ * clockwise order: the same three colors in mirrored order make a cubie
+ * that does not exist. Given that, a state is solvable exactly when it
+ * passes every check.
+ *
+ * The validator keeps no state, so any number of threads may use it at once.
+ * States can also be validated in bulk from one flat array holding many
+ * states back to back.
+ */
+public class CubeValidator {
+    
+    /**
+     * Results of a validation: the state is solvable, or the first check it
+     * fails.
+     */
+    public static final int VALID = 0;
+    public static final int COLORS = 1;
+    public static final int CENTERS = 2;
+    public static final int CORNERS = 3;
+    public static final int EDGES = 4;
+    public static final int CORNER_TWIST = 5;
+    public static final int EDGE_FLIP = 6;
+    public static final int PERMUTATION_PARITY = 7;
+    
+    private static final String[] NAMES = {
+        "valid", "color count", "centers", "corner cubies", "edge cubies",
+        "corner twist", "edge flip", "permutation parity"
+    };
+    
+    /**
+     * Center facelet of each face, indexed by face.
+     */
+    private static final byte[] CENTER_FACELETS = {4, 19, 22, 25, 40, 49};
+    
+    /**
+     * Validates a state.
+     * @param state cube state, as in Cube.cube
+     * @return VALID, or the first check the state fails
+     */
+    public static int validate(byte[] state) {
+        if (state.length != 54)
+            return COLORS;
+        return validate(state, 0);
+    }
+    
+    /**
+     * Validates a state stored in part of a larger array.
+     * @param states array holding the state
+     * @param offset index of the first facelet of the state
+     * @return VALID, or the first check the state fails
+     */
+    public static int validate(byte[] states, int offset) {
+        
+        //Six color counts of a byte each, every one of which must reach 9
+        long counts = 0;
+        int centers = 0;
+        for (int face = 0; face < 6; face++) {
+            int color = states[offset + CENTER_FACELETS[face]];
+            if (color < 0 || color > 5)
+                return COLORS;
+            counts += 1L << (color * 8);
+            if (color != face)
+                centers++;
+        }
+        
+        int corners = 0;
+        int cornersUsed = 0;
+        int twist = 0;
+        int cornerParity = 0;
+        for (int i = 0; i < 8; i++) {
+            byte[] facelets = Cube.CORNERS[i];
+            int a = states[offset + facelets[0]];
+            int b = states[offset + facelets[1]];
+            int c = states[offset + facelets[2]];
+            if ((a | b | c) < 0 || a > 5 || b > 5 || c > 5)
+                return COLORS;
+            counts += (1L << (a * 8)) + (1L << (b * 8)) + (1L << (c * 8));
+            
+            int cubie = KorfAlgorithm.CORNER_LOOKUP[(1 << a) | (1 << b) | (1 << c)];
+            if (cubie < 0 || (cornersUsed & (1 << cubie)) != 0) {
+                corners++;
+                continue;
+            }
+            
+            //Clockwise from the red/orange facelet the colors must come in
+            //the order of the cubie, or the corner is a mirror image
+            int t = KorfAlgorithm.isUpDown((byte)a) ? 0 : KorfAlgorithm.isUpDown((byte)b) ? 1 : 2;
+            int next = t == 0 ? b : t == 1 ? c : a;
+            int last = t == 0 ? c : t == 1 ? a : b;
+            byte[] colors = KorfAlgorithm.CORNER_COLORS[cubie];
+            if (next != colors[1] || last != colors[2]) {
+                corners++;
+                continue;
+            }
+            
+            //Cubies placed before this one with a larger index are inversions
+            cornerParity += Integer.bitCount(cornersUsed >>> cubie);
+            cornersUsed |= 1 << cubie;
+            twist += t;
+        }
+        
+        int edges = 0;
+        int edgesUsed = 0;
+        int flip = 0;
+        int edgeParity = 0;
+        for (int i = 0; i < 12; i++) {
+            byte[] facelets = Cube.EDGES[i];
+            int a = states[offset + facelets[0]];
+            int b = states[offset + facelets[1]];
+            if ((a | b) < 0 || a > 5 || b > 5)
+                return COLORS;
+            counts += (1L << (a * 8)) + (1L << (b * 8));
+            
+            int cubie = KorfAlgorithm.EDGE_LOOKUP[(1 << a) | (1 << b)];
+            if (cubie < 0 || (edgesUsed & (1 << cubie)) != 0) {
+                edges++;
+                continue;
+            }
+            edgeParity += Integer.bitCount(edgesUsed >>> cubie);
+            edgesUsed |= 1 << cubie;
+            flip += a == KorfAlgorithm.EDGE_COLORS[cubie][0] ? 0 : 1;
+        }
+        
+        if (counts != 0x090909090909L)
+            return COLORS;
+        if (centers != 0)
+            return CENTERS;
+        if (corners != 0)
+            return CORNERS;
+        if (edges != 0)
+            return EDGES;
+        if (twist % 3 != 0)
+            return CORNER_TWIST;
+        if (flip % 2 != 0)
+            return EDGE_FLIP;
+        //A face turn swaps as many corner pairs as edge pairs
+        if ((cornerParity - edgeParity) % 2 != 0)
+            return PERMUTATION_PARITY;
+        return VALID;
+        
+    }
+    
+    /**
+     * Validates states stored back to back, 54 facelets each.
+     * @param states array holding the states
+     * @param count number of states
+     * @param results receives the result of each state
+     * @return number of valid states
+     */
+    public static int validateAll(byte[] states, int count, byte[] results) {
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            results[i] = (byte)validate(states, i * 54);
+            if (results[i] == VALID)
+                valid++;
+        }
+        return valid;
+    }
+    
+    /**
+     * Validates an array of states.
+     * @param states cube states
+     * @param results receives the result of each state
+     * @return number of valid states
+     */
+    public static int validateAll(byte[][] states, byte[] results) {
+        int valid = 0;
+        for (int i = 0; i < states.length; i++) {
+            results[i] = (byte)validate(states[i]);
+            if (results[i] == VALID)
+                valid++;
+        }
+        return valid;
+    }
+    
+    /**
+     * @param result result of a validation
+     * @return name of the check, or "valid"
+     */
+    public static String describe(int result) {
+        return NAMES[result];
+    }
+    
+}
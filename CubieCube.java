@@ -0,0 +1,322 @@
+package rubik;
+
+/**
+ * A representation of a Rubik's Cube by its cubies instead of its facelets.
+ * For every corner and edge position it records which cubie occupies the
+ * position (cp, ep) and how that cubie is twisted or flipped (co, eo), with
+ * positions and cubies numbered as in Cube.CORNERS and Cube.EDGES.
+ *
+ * Moves are numbered face * 3 + (turns - 1), so all eighteen face turns are
+ * available. The coordinates used by the heuristic tables can be moved with
+ * the precomputed transition tables, which turns a move into a few array
+ * reads instead of a facelet rotation followed by a fresh ranking.
+ */
+public class CubieCube {
+    
+    /**
+     * Number of moves: each of the six faces turned by one, two or three
+     * quarter turns.
+     */
+    public static final int MOVES = 18;
+    
+    public static final int CORNER_PERMUTATIONS = 40320;
+    public static final int CORNER_ORIENTATIONS = KorfAlgorithm.CORNER_ORIENTATIONS;
+    
+    /**
+     * Corner permutation coordinate reached by each move.
+     */
+    public static final int[][] CORNER_PERMUTATION_MOVE = new int[CORNER_PERMUTATIONS][MOVES];
+    
+    /**
+     * Corner orientation coordinate reached by each move.
+     */
+    public static final int[][] CORNER_ORIENTATION_MOVE = new int[CORNER_ORIENTATIONS][MOVES];
+    
+    /**
+     * Position and flip (position * 2 + flip) an edge cubie is moved to by
+     * each move. Edge subset indices are ranked from these values.
+     */
+    public static final byte[][] EDGE_MOVE = new byte[24][MOVES];
+    
+    /**
+     * Position and twist (position * 3 + twist) a corner cubie is moved to by
+     * each move. The corner coordinates of the inverse cube are ranked from
+     * these values.
+     */
+    public static final byte[][] CORNER_MOVE = new byte[24][MOVES];
+    
+    /**
+     * Cubie representation of each move applied to a solved cube.
+     */
+    private static final CubieCube[] MOVE_CUBES = new CubieCube[MOVES];
+    
+    protected final byte[] cp = new byte[8];
+    protected final byte[] co = new byte[8];
+    protected final byte[] ep = new byte[12];
+    protected final byte[] eo = new byte[12];
+    
+    static {
+        byte[] solved = new Cube().cube;
+        
+        for (byte face = 0; face < 6; face++) {
+            CubieCube quarter = new CubieCube(Cube.rotate(solved, face, 1));
+            MOVE_CUBES[face * 3] = quarter;
+            for (int turns = 1; turns < 3; turns++) {
+                CubieCube turn = new CubieCube(MOVE_CUBES[face * 3 + turns - 1]);
+                turn.multiply(quarter);
+                MOVE_CUBES[face * 3 + turns] = turn;
+            }
+        }
+        
+        CubieCube cube = new CubieCube();
+        for (int i = 0; i < CORNER_PERMUTATIONS; i++) {
+            for (int m = 0; m < MOVES; m++) {
+                cube.setCornerPermutation(i);
+                cube.multiply(MOVE_CUBES[m]);
+                CORNER_PERMUTATION_MOVE[i][m] = cube.cornerPermutation();
+            }
+        }
+        for (int i = 0; i < CORNER_ORIENTATIONS; i++) {
+            for (int m = 0; m < MOVES; m++) {
+                cube.setCornerOrientation(i);
+                cube.multiply(MOVE_CUBES[m]);
+                CORNER_ORIENTATION_MOVE[i][m] = cube.cornerOrientation();
+            }
+        }
+        
+        //The cubie at position p is moved to the position the move fills from p
+        for (int m = 0; m < MOVES; m++) {
+            CubieCube move = MOVE_CUBES[m];
+            for (int p = 0; p < 12; p++) {
+                int target = move.ep[p];
+                for (int flip = 0; flip < 2; flip++)
+                    EDGE_MOVE[target * 2 + flip][m] = (byte)(p * 2 + (flip + move.eo[p]) % 2);
+            }
+            for (int p = 0; p < 8; p++) {
+                int target = move.cp[p];
+                for (int twist = 0; twist < 3; twist++)
+                    CORNER_MOVE[target * 3 + twist][m] = (byte)(p * 3 + (twist + move.co[p]) % 3);
+            }
+        }
+    }
+    
+    /**
+     * Default constructor initializes to a solved cube.
+     */
+    public CubieCube() {
+        for (byte i = 0; i < 8; i++)
+            cp[i] = i;
+        for (byte i = 0; i < 12; i++)
+            ep[i] = i;
+    }
+    
+    /**
+     * Copy constructor.
+     * @param other cube to copy
+     */
+    public CubieCube(CubieCube other) {
+        System.arraycopy(other.cp, 0, cp, 0, cp.length);
+        System.arraycopy(other.co, 0, co, 0, co.length);
+        System.arraycopy(other.ep, 0, ep, 0, ep.length);
+        System.arraycopy(other.eo, 0, eo, 0, eo.length);
+    }
+    
+    /**
+     * Constructor converting from a facelet state.
+     * @param state facelet state of the cube, as in Cube.cube
+     */
+    public CubieCube(byte[] state) {
+        for (int i = 0; i < cp.length; i++) {
+            byte[] corner = Cube.CORNERS[i];
+            byte a = state[corner[0]];
+            byte b = state[corner[1]];
+            byte c = state[corner[2]];
+            cp[i] = KorfAlgorithm.CORNER_LOOKUP[(1 << a) | (1 << b) | (1 << c)];
+            co[i] = (byte)(KorfAlgorithm.isUpDown(a) ? 0 : KorfAlgorithm.isUpDown(b) ? 1 : 2);
+        }
+        for (int i = 0; i < ep.length; i++) {
+            byte[] edge = Cube.EDGES[i];
+            byte a = state[edge[0]];
+            byte b = state[edge[1]];
+            ep[i] = KorfAlgorithm.EDGE_LOOKUP[(1 << a) | (1 << b)];
+            eo[i] = (byte)(a == KorfAlgorithm.EDGE_COLORS[ep[i]][0] ? 0 : 1);
+        }
+    }
+    
+    /**
+     * Converts the cube to a facelet state.
+     * @return facelet state of the cube, as in Cube.cube
+     */
+    public byte[] toFacelets() {
+        byte[] state = new Cube().cube;
+        for (int i = 0; i < cp.length; i++) {
+            for (int k = 0; k < 3; k++)
+                state[Cube.CORNERS[i][(k + co[i]) % 3]] = KorfAlgorithm.CORNER_COLORS[cp[i]][k];
+        }
+        for (int i = 0; i < ep.length; i++) {
+            for (int k = 0; k < 2; k++)
+                state[Cube.EDGES[i][(k + eo[i]) % 2]] = KorfAlgorithm.EDGE_COLORS[ep[i]][k];
+        }
+        return state;
+    }
+    
+    /**
+     * Applies a move to the cube.
+     * @param move move number, face * 3 + (turns - 1)
+     */
+    public void move(int move) {
+        multiply(MOVE_CUBES[move]);
+    }
+    
+    /**
+     * Replaces this cube with this cube followed by another one: position i
+     * receives the cubie the other cube brings to i, taken from this cube.
+     * @param other cube applied after this one
+     */
+    public void multiply(CubieCube other) {
+        byte[] corners = cp.clone();
+        byte[] twists = co.clone();
+        for (int i = 0; i < cp.length; i++) {
+            cp[i] = corners[other.cp[i]];
+            co[i] = (byte)((twists[other.cp[i]] + other.co[i]) % 3);
+        }
+        byte[] edges = ep.clone();
+        byte[] flips = eo.clone();
+        for (int i = 0; i < ep.length; i++) {
+            ep[i] = edges[other.ep[i]];
+            eo[i] = (byte)((flips[other.ep[i]] + other.eo[i]) % 2);
+        }
+    }
+    
+    /**
+     * @return inverse of the cube, the cube that undoes it
+     */
+    public CubieCube inverse() {
+        CubieCube inverse = new CubieCube();
+        for (int i = 0; i < cp.length; i++) {
+            inverse.cp[cp[i]] = (byte)i;
+            inverse.co[cp[i]] = (byte)((3 - co[i]) % 3);
+        }
+        for (int i = 0; i < ep.length; i++) {
+            inverse.ep[ep[i]] = (byte)i;
+            inverse.eo[ep[i]] = eo[i];
+        }
+        return inverse;
+    }
+    
+    /**
+     * @return Lehmer code of the corner permutation, in [0, 40320)
+     */
+    public int cornerPermutation() {
+        return cornerPermutation(cp);
+    }
+    
+    /**
+     * @param cp corner cubie at each position
+     * @return Lehmer code of the corner permutation, in [0, 40320)
+     */
+    public static int cornerPermutation(byte[] cp) {
+        int used = 0;
+        int permutation = 0;
+        for (int i = 0; i < cp.length - 1; i++) {
+            permutation = permutation * (cp.length - i)
+                    + Integer.bitCount(~used & ((1 << cp[i]) - 1));
+            used |= 1 << cp[i];
+        }
+        return permutation;
+    }
+    
+    /**
+     * @param permutation Lehmer code of the corner permutation
+     */
+    public void setCornerPermutation(int permutation) {
+        int used = 0;
+        for (int i = 0; i < cp.length; i++) {
+            int radix = KorfAlgorithm.FACTORIAL[cp.length - 1 - i];
+            cp[i] = (byte)KorfAlgorithm.nthClearBit(used, permutation / radix);
+            used |= 1 << cp[i];
+            permutation %= radix;
+        }
+    }
+    
+    /**
+     * @return twists of the first seven corners as a base-3 number, in [0, 2187)
+     */
+    public int cornerOrientation() {
+        return cornerOrientation(co);
+    }
+    
+    /**
+     * @param co twist of the corner cubie at each position
+     * @return twists of the first seven corners as a base-3 number, in [0, 2187)
+     */
+    public static int cornerOrientation(byte[] co) {
+        int orientation = 0;
+        for (int i = 0; i < co.length - 1; i++)
+            orientation = orientation * 3 + co[i];
+        return orientation;
+    }
+    
+    /**
+     * @param orientation twists of the first seven corners as a base-3 number
+     */
+    public void setCornerOrientation(int orientation) {
+        int twist = 0;
+        for (int i = co.length - 2; i >= 0; i--) {
+            co[i] = (byte)(orientation % 3);
+            twist += co[i];
+            orientation /= 3;
+        }
+        co[co.length - 1] = (byte)((3 - twist % 3) % 3);
+    }
+    
+    /**
+     * @return corner index, equal to KorfAlgorithm.rankCorners of the facelets
+     */
+    public int cornerIndex() {
+        return cornerPermutation() * CORNER_ORIENTATIONS + cornerOrientation();
+    }
+    
+    /**
+     * Fills in the position and flip of every edge cubie, as used by EDGE_MOVE.
+     * @param edges receives position * 2 + flip, indexed by edge cubie
+     */
+    public void getEdges(byte[] edges) {
+        for (int i = 0; i < ep.length; i++)
+            edges[ep[i]] = (byte)(i * 2 + eo[i]);
+    }
+    
+    /**
+     * Fills in the position and twist of every corner cubie, as used by
+     * CORNER_MOVE.
+     * @param corners receives position * 3 + twist, indexed by corner cubie
+     */
+    public void getCorners(byte[] corners) {
+        for (int i = 0; i < cp.length; i++)
+            corners[cp[i]] = (byte)(i * 3 + co[i]);
+    }
+    
+    /**
+     * Ranks a subset of the edge cubies from their positions and flips.
+     * @param edges position * 2 + flip, indexed by edge cubie
+     * @param subset bitmask of the tracked edge cubies
+     * @return edge index, equal to KorfAlgorithm.rankEdges of the facelets
+     */
+    public static long rankEdges(byte[] edges, int subset) {
+        int used = 0;
+        int permutation = 0;
+        int orientation = 0;
+        int i = 0;
+        for (int cubie = 0; cubie < edges.length; cubie++) {
+            if ((subset & (1 << cubie)) == 0)
+                continue;
+            int position = edges[cubie] >>> 1;
+            permutation = permutation * (edges.length - i++)
+                    + Integer.bitCount(~used & ((1 << position) - 1));
+            used |= 1 << position;
+            orientation = orientation << 1 | (edges[cubie] & 1);
+        }
+        return (long)permutation << Integer.bitCount(subset) | orientation;
+    }
+    
+}
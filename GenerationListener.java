@@ -0,0 +1,15 @@
+package rubik;
+
+/**
+ * Receives the progress of a heuristic table generation, once after every
+ * depth layer of the breadth-first search and once when it ends. Listeners
+ * are called on the thread running the generation, between layers.
+ */
+public interface GenerationListener {
+    
+    /**
+     * @param progress progress after the latest layer
+     */
+    void progress(GenerationProgress progress);
+    
+}
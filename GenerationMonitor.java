@@ -0,0 +1,49 @@
+package rubik;
+
+/**
+ * Keeps the totals and timing of one heuristic table generation and turns
+ * each finished depth layer into a GenerationProgress for a listener.
+ */
+class GenerationMonitor {
+    
+    private final int kind;
+    private final long reachable;
+    private final GenerationListener listener;
+    private final long start = System.nanoTime();
+    private long total;
+    private int depth = -1;
+    
+    /**
+     * @param kind table kind, see PatternDatabase
+     * @param listener listener of the generation, or null
+     */
+    GenerationMonitor(int kind, GenerationListener listener) {
+        this.kind = kind;
+        this.reachable = PatternDatabase.states(kind);
+        this.listener = listener;
+    }
+    
+    /**
+     * Reports a finished layer.
+     * @param depth depth of the layer
+     * @param states number of states at that depth
+     */
+    void layer(int depth, long states) {
+        this.depth = depth;
+        total += states;
+        if (listener != null)
+            listener.progress(new GenerationProgress(kind, depth, states, total, reachable,
+                    System.nanoTime() - start, false));
+    }
+    
+    /**
+     * Reports the end of the generation, as a layer of no states below the
+     * deepest one.
+     */
+    void finish() {
+        if (listener != null)
+            listener.progress(new GenerationProgress(kind, depth + 1, 0, total, reachable,
+                    System.nanoTime() - start, true));
+    }
+    
+}
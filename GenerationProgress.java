@@ -0,0 +1,125 @@
+package rubik;
+
+/**
+ * Progress of a heuristic table generation after one depth layer of the
+ * breadth-first search: the states first reached at that depth, the states
+ * reached so far, how many of the reachable states they are and how fast
+ * they were found. The estimated time left assumes the states still missing are found
+ * at the average rate so far, which is rough, as the widest layers come
+ * last.
+ */
+public final class GenerationProgress {
+    
+    private final int kind;
+    private final int depth;
+    private final long states;
+    private final long total;
+    private final long reachable;
+    private final long elapsedNanos;
+    private final boolean finished;
+    
+    /**
+     * @param kind table kind, see PatternDatabase
+     * @param depth depth of the layer
+     * @param states number of states at that depth
+     * @param total number of states reached so far, at every depth
+     * @param reachable number of states the table can reach
+     * @param elapsedNanos time since the generation started, in nanoseconds
+     * @param finished true if the generation has ended
+     */
+    GenerationProgress(int kind, int depth, long states, long total, long reachable, long elapsedNanos,
+            boolean finished) {
+        this.kind = kind;
+        this.depth = depth;
+        this.states = states;
+        this.total = total;
+        this.reachable = reachable;
+        this.elapsedNanos = elapsedNanos;
+        this.finished = finished;
+    }
+    
+    /**
+     * @return table kind, see PatternDatabase
+     */
+    public int kind() {
+        return kind;
+    }
+    
+    /**
+     * @return depth of the layer
+     */
+    public int depth() {
+        return depth;
+    }
+    
+    /**
+     * @return number of states at the depth of the layer
+     */
+    public long states() {
+        return states;
+    }
+    
+    /**
+     * @return number of states reached so far, at every depth
+     */
+    public long total() {
+        return total;
+    }
+    
+    /**
+     * @return number of states the table can reach, see
+     * PatternDatabase.states
+     */
+    public long reachable() {
+        return reachable;
+    }
+    
+    /**
+     * @return time since the generation started, in nanoseconds
+     */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    /**
+     * @return true if the generation has ended, after a layer of no states
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+    
+    /**
+     * @return states reached per second, on average since the start
+     */
+    public double statesPerSecond() {
+        return elapsedNanos == 0 ? 0 : total * 1e9 / elapsedNanos;
+    }
+    
+    /**
+     * @return fraction of the reachable states reached, in [0, 1]
+     */
+    public double fillRatio() {
+        return (double)total / reachable;
+    }
+    
+    /**
+     * @return estimated time left, in nanoseconds, 0 once finished
+     */
+    public long etaNanos() {
+        if (finished || total >= reachable)
+            return 0;
+        double rate = statesPerSecond();
+        return rate == 0 ? Long.MAX_VALUE : (long)((reachable - total) / rate * 1e9);
+    }
+    
+    /**
+     * @return one line summary, as logged
+     */
+    @Override
+    public String toString() {
+        String line = String.format("depth %d: %,d states, %,d of %,d (%.1f%%), %,.0f states/s, %.1f s",
+                depth, states, total, reachable, fillRatio() * 100, statesPerSecond(), elapsedNanos / 1e9);
+        return finished ? line + ", done" : line + String.format(", about %.0f s left", etaNanos() / 1e9);
+    }
+    
+}
@@ -0,0 +1,167 @@
+package rubik;
+
+/**
+ * Evaluates a cube state against the corner and edge heuristic tables. The
+ * heuristic value of a state is the maximum of the table values.
+ *
+ * Tables may be packed to depths modulo 3. Because every move can be undone
+ * by another move, a single move changes the depth of a state by at most one,
+ * so the exact value of a child follows from its entry and the exact value of
+ * its parent. The exact value of the start state is found by walking down the
+ * table to the goal.
+ */
+public class Heuristic {
+    
+    private final PatternDatabase[] tables;
+    private final long[] goals;
+    
+    /**
+     * @param tables corner and edge heuristic tables
+     */
+    public Heuristic(PatternDatabase... tables) {
+        this.tables = tables.clone();
+        this.goals = new long[tables.length];
+        byte[] solved = new Cube().cube;
+        for (int i = 0; i < tables.length; i++)
+            goals[i] = PatternDatabase.rank(tables[i].kind(), solved);
+    }
+    
+    /**
+     * @return number of tables, the length of the value arrays
+     */
+    public int size() {
+        return tables.length;
+    }
+    
+    /**
+     * @param table index of the table
+     * @return kind of the table, see PatternDatabase
+     */
+    public int kind(int table) {
+        return tables[table].kind();
+    }
+    
+    /**
+     * Evaluates a state without knowing the values of its parent.
+     * @param state current state of the cube
+     * @param values receives the value of each table
+     * @return heuristic value
+     */
+    public int evaluate(byte[] state, int[] values) {
+        
+        int max = 0;
+        for (int i = 0; i < tables.length; i++) {
+            values[i] = tables[i].isPacked() ? descend(i, state)
+                    : tables[i].get(PatternDatabase.rank(tables[i].kind(), state));
+            max = Math.max(max, values[i]);
+        }
+        return max;
+        
+    }
+    
+    /**
+     * Evaluates a state reached by one move from a state of known values.
+     * @param state current state of the cube
+     * @param parent values of each table for the parent state
+     * @param values receives the value of each table
+     * @return heuristic value
+     */
+    public int evaluate(byte[] state, int[] parent, int[] values) {
+        
+        int max = 0;
+        for (int i = 0; i < tables.length; i++) {
+            int entry = tables[i].get(PatternDatabase.rank(tables[i].kind(), state));
+            values[i] = tables[i].isPacked() ? recover(entry, parent[i]) : entry;
+            max = Math.max(max, values[i]);
+        }
+        return max;
+        
+    }
+    
+    /**
+     * Evaluates a state reached by one move from a state of known values,
+     * given the index of the state in every table.
+     * @param indices index of the state in each table
+     * @param parent values of each table for the parent state
+     * @param values receives the value of each table
+     * @return heuristic value
+     */
+    public int evaluate(long[] indices, int[] parent, int[] values) {
+        
+        int max = 0;
+        for (int i = 0; i < tables.length; i++) {
+            int entry = tables[i].get(indices[i]);
+            values[i] = tables[i].isPacked() ? recover(entry, parent[i]) : entry;
+            max = Math.max(max, values[i]);
+        }
+        return max;
+        
+    }
+    
+    /**
+     * Evaluates a state without knowing the values of a neighboring state,
+     * using only the tables of exact depths. Packed tables are skipped, since
+     * their entries say nothing on their own, so the value is 0 when every
+     * table is packed.
+     * @param indices index of the state in each table
+     * @return heuristic value of the tables of exact depths
+     */
+    public int lowerBound(long[] indices) {
+        int max = 0;
+        for (int i = 0; i < tables.length; i++) {
+            if (!tables[i].isPacked())
+                max = Math.max(max, tables[i].get(indices[i]));
+        }
+        return max;
+    }
+    
+    /**
+     * Picks the depth out of parent - 1, parent and parent + 1 that matches a
+     * packed entry.
+     * @param entry depth modulo 3
+     * @param parent depth of the parent state
+     * @return depth
+     */
+    private static int recover(int entry, int parent) {
+        return parent - 1 + ((entry - parent + 1) % 3 + 3) % 3;
+    }
+    
+    /**
+     * Finds the exact depth of a state in a packed table by repeatedly moving
+     * to a neighbor one level closer to the goal.
+     * @param table index of the table
+     * @param state current state of the cube
+     * @return depth
+     */
+    private int descend(int table, byte[] state) {
+        
+        PatternDatabase pdb = tables[table];
+        long index = PatternDatabase.rank(pdb.kind(), state);
+        int depth = 0;
+        
+        while (index != goals[table]) {
+            int closer = (pdb.get(index) + 2) % 3;
+            long previous = index;
+            search:
+            for (byte face : Cube.FACES.keySet()) {
+                byte[] next = state;
+                for (int turns = 1; turns < 4; turns++) {
+                    next = Cube.rotate(next, face, 1);
+                    long i = PatternDatabase.rank(pdb.kind(), next);
+                    if (pdb.get(i) == closer) {
+                        state = next;
+                        index = i;
+                        break search;
+                    }
+                }
+            }
+            if (index == previous)
+                throw new IllegalStateException("Packed heuristic table has no path to the goal");
+            depth++;
+        }
+        
+        return depth;
+        
+    }
+    
+}
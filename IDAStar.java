@@ -8,25 +8,36 @@ package rubik;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.Collections;
 
 /**
- *
+ * Depth-first iterative deepening A* search. Each iteration searches every
+ * path whose cost plus heuristic value stays within the bound, and the next
+ * bound is the smallest such value that exceeded it. Only the current path
+ * is kept, so memory grows with the solution depth.
  * @author Chris
  */
 public class IDAStar {
     
-//    public static final byte[] cornerHeuristics = KorfAlgorithm.readFromBinaryFile("corners.txt", 88179840);
-//    public static final byte[] edgeFirstHeuristics = KorfAlgorithm.readFromBinaryFile("edges1.txt", 42557920);
-//    public static final byte[] edgeSecondHeuristics = KorfAlgorithm.readFromBinaryFile("edges2.txt", 42557920);
-    public static final byte[] cornerHeuristics = new byte[88179840];
-    public static final byte[] edgeFirstHeuristics = new byte[42557920];
-    public static final byte[] edgeSecondHeuristics = new byte[42557920];
-    public static PriorityQueue<CubeNode> frontier = new PriorityQueue<>();
-    public static HashSet<CubeNode> explored = new HashSet<>();
+    /**
+     * Corner and edge heuristic, loaded by PatternDatabaseStore before searching.
+     */
+    public static Heuristic heuristic;
+    
+    /**
+     * Returned by search when the goal has been reached.
+     */
+    private static final int FOUND = -1;
+    
+    /**
+     * Listener of the searches, or null for none, see SearchMetrics.
+     */
+    public static SearchListener listener;
+    
     protected static int next;
     protected static int nodesSeen;
+    private static final long[] histogram = new long[SearchMetrics.HISTOGRAM_SIZE];
+    private static final long[] prunes = new long[SearchMetrics.REASONS];
     
     /**
      * Performs IDA* search on the given Rubik's Cube state.
@@ -35,56 +46,79 @@ public class IDAStar {
      */
     public static String initialize(byte[] initState) {
         
-        //CubeNode startNode = new CubeNode(initState, cornerHeuristics[Integer.parseInt(KorfAlgorithm.encodeCorners(initState))]);
-        CubeNode startNode = new CubeNode(initState, 0);
+        SearchMonitor monitor = new SearchMonitor(listener);
+        monitor.startSolve();
+        int[] heuristics = new int[heuristic.size()];
+        CubeNode startNode = new CubeNode(initState, heuristic.evaluate(initState, heuristics), "");
+        startNode.heuristics = heuristics;
         
         System.out.println("Beginning heuristic value: " + startNode.heuristic);
         
         next = startNode.heuristic;
         nodesSeen = 0;
-        CubeNode endNode = null;
+        CubeNode[] endNode = new CubeNode[1];
+        int bound;
         
-        while (endNode == null) {
-            
-            //System.out.println("Current: " + next);
-            //System.out.println("Number of nodes seen: " + nodesSeen);
-            
-            frontier.add(startNode);
-            nodesSeen++;
-            Cube newCube = new Cube();
-            
-            while (!frontier.isEmpty()) {
-                nodesSeen++;
-                CubeNode currentNode = frontier.poll();
-                
-                if (Arrays.equals(currentNode.state, newCube.cube)) 
-                    endNode = currentNode;
-                
-                explored.add(currentNode);
-                ArrayList<CubeNode> successors = CubeNode.getSuccessors(currentNode);
-                
-                for (CubeNode s : successors) {
-                    int temp = currentNode.g + s.heuristic;
-                    s.g = currentNode.g + 1;
-                    if (temp <= next && !explored.contains(s))
-                        frontier.add(s);
-                }
-            }
-            
-            next++;
-            frontier.clear();
-            explored.clear();
-            
+        while (true) {
+            monitor.startIteration();
+            Arrays.fill(histogram, 0);
+            Arrays.fill(prunes, 0);
+            bound = search(startNode, next, endNode);
+            monitor.finishIteration(next, nodesSeen, histogram, prunes, false);
+            if (bound == FOUND)
+                break;
+            next = bound;
+        }
+        
+        monitor.finishSolve(endNode[0].g, false);
+        return format(endNode[0].path);
+        
+    }
+    
+    /**
+     * Searches below a node for the goal, within a bound on cost plus
+     * heuristic value.
+     * @param node current node, with g set to the cost of its path
+     * @param bound largest cost plus heuristic value searched
+     * @param endNode receives the goal node once it is found
+     * @return FOUND, or the smallest cost plus heuristic value exceeding the bound
+     */
+    private static int search(CubeNode node, int bound, CubeNode[] endNode) {
+        
+        nodesSeen++;
+        histogram[Math.min(node.heuristic, SearchMetrics.HISTOGRAM_SIZE - 1)]++;
+        int f = node.g + node.heuristic;
+        if (f > bound) {
+            prunes[SearchMetrics.BOUND]++;
+            return f;
         }
         
-        //System.out.println("Solved!");
-        //System.out.println("Total number of nodes seen: " + nodesSeen);
+        //The goal has a heuristic value of 0, so only such nodes are compared
+        if (node.heuristic == 0 && StateKey.of(node.state).isGoal()) {
+            endNode[0] = node;
+            return FOUND;
+        }
         
-        return format(endNode.path);
+        //Try the most promising successors first, which matters in the last iteration
+        ArrayList<CubeNode> successors = CubeNode.getSuccessors(node);
+        Collections.sort(successors);
+        
+        int min = Integer.MAX_VALUE;
+        for (CubeNode s : successors) {
+            s.g = node.g + 1;
+            int t = search(s, bound, endNode);
+            if (t == FOUND)
+                return FOUND;
+            min = Math.min(min, t);
+        }
+        return min;
         
     }
     
     private static String format(String s) {
+        if (s.length() < 2)
+            return s;
+        
         try {
             
             char[] c = s.toCharArray();
@@ -1,16 +1,6 @@
 package rubik;
 
-import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
@@ -30,13 +20,13 @@ public class KorfAlgorithm {
      * The position and orientation of the last cubie is determined by the other
      * seven. Therefore, (8!)*(3^7) = 88,179,840 unique states.
      */
-    private static final int MAX_CORNER_STATES = 88179840;
+    protected static final int MAX_CORNER_STATES = 88179840;
     
     /**
      * Using all twelve edges mapped in too large of a file, so it is split in 
-     * half. Therefore, (12!)/(6!)*(2^6) = 42,557,920 unique states.
+     * half. Therefore, (12!)/(6!)*(2^6) = 42,577,920 unique states.
      */
-    private static final int MAX_EDGE_STATES = 42557920;
+    protected static final int MAX_EDGE_STATES = 42577920;
     
     /**
      * The maximum number of moves required to solve each combination of corner
@@ -50,16 +40,92 @@ public class KorfAlgorithm {
      */
     private static final int EDGE_DEPTH_LIMIT = 10;
     
-    protected static byte[] cornerHeuristic = new byte[MAX_CORNER_STATES];
-    protected static byte[] edgeFirstHeuristic = new byte[MAX_EDGE_STATES];
-    protected static byte[] edgeSecondHeuristic = new byte[MAX_EDGE_STATES];
+    /**
+     * Number of orientations of the first seven corners (3^7).
+     */
+    protected static final int CORNER_ORIENTATIONS = 2187;
+    
+    protected static final int[] FACTORIAL = {1, 1, 2, 6, 24, 120, 720, 5040};
+    protected static final int[] POWERS_OF_THREE = {1, 3, 9, 27, 81, 243, 729};
+    
+    /**
+     * Corner cubie index (position in Cube.CORNERS when solved) keyed by the
+     * bitmask of its three colors, or -1 for impossible color combinations.
+     */
+    protected static final byte[] CORNER_LOOKUP = new byte[64];
+    
+    /**
+     * Colors of each corner cubie, in the same clockwise order as the 
+     * facelets of its solved position in Cube.CORNERS.
+     */
+    protected static final byte[][] CORNER_COLORS = new byte[8][3];
+    
+    /**
+     * Edge cubie index (position in Cube.EDGES when solved) keyed by the 
+     * bitmask of its two colors, or -1 for impossible color combinations.
+     */
+    protected static final byte[] EDGE_LOOKUP = new byte[64];
+    
+    /**
+     * Colors of each edge cubie, in the same order as the facelets of its
+     * solved position in Cube.EDGES.
+     */
+    protected static final byte[][] EDGE_COLORS = new byte[12][2];
+    
+    /**
+     * Edge subsets (bitmasks over Cube.EDGES) of the two edge heuristics.
+     */
+    public static final int FIRST_EDGES = 0x03F;
+    public static final int SECOND_EDGES = 0xFC0;
+    
+    static {
+        byte[] solved = new Cube().cube;
+        Arrays.fill(CORNER_LOOKUP, (byte)-1);
+        for (int i = 0; i < Cube.CORNERS.length; i++) {
+            int mask = 0;
+            for (int k = 0; k < 3; k++) {
+                CORNER_COLORS[i][k] = solved[Cube.CORNERS[i][k]];
+                mask |= 1 << CORNER_COLORS[i][k];
+            }
+            CORNER_LOOKUP[mask] = (byte)i;
+        }
+        Arrays.fill(EDGE_LOOKUP, (byte)-1);
+        for (int i = 0; i < Cube.EDGES.length; i++) {
+            EDGE_COLORS[i][0] = solved[Cube.EDGES[i][0]];
+            EDGE_COLORS[i][1] = solved[Cube.EDGES[i][1]];
+            EDGE_LOOKUP[(1 << EDGE_COLORS[i][0]) | (1 << EDGE_COLORS[i][1])] = (byte)i;
+        }
+    }
+    
+    /**
+     * Version of the corner and edge encodings. Must be increased whenever
+     * rankCorners or rankEdges or the move set change, so stored tables are
+     * regenerated. Version 2 tables count half turns as one move.
+     */
+    public static final int ENCODER_VERSION = 2;
+    
+    /**
+     * Marks table entries whose depth is not known yet during generation.
+     */
+    protected static final byte UNSEEN = -1;
     
     /**
      * Generates corner heuristics for the Rubik's Cube using Korf's Algorithm 
-     * and a breadth-first search.
+     * and a breadth-first search. Progress is printed once per depth layer.
+     * @return corner heuristic table
      */
-    public static void cornerHeuristic() {
+    public static byte[] cornerHeuristic() {
+        return cornerHeuristic(System.out::println);
+    }
     
+    /**
+     * Generates the corner heuristic table as above, reporting progress once per
+     * depth layer.
+     * @param listener listener of the progress, or null for none
+     * @return corner heuristic table
+     */
+    public static byte[] cornerHeuristic(GenerationListener listener) {
+        
         //0-9-51
         //2-17-53
         //6-11-12
@@ -74,39 +140,61 @@ public class KorfAlgorithm {
         Queue<CubeNode> queue = new LinkedList<>();
         
         queue.add(new CubeNode(cube.cube, 0));
-        cornerHeuristic = new byte[MAX_CORNER_STATES];
+        byte[] cornerHeuristic = new byte[MAX_CORNER_STATES];
+        Arrays.fill(cornerHeuristic, UNSEEN);
+        cornerHeuristic[rankCorners(cube.cube)] = 0;
+        GenerationMonitor monitor = new GenerationMonitor(PatternDatabase.CORNERS, listener);
+        monitor.layer(0, 1);
+        long[] layers = new long[CORNER_DEPTH_LIMIT + 2];
+        int reported = 0;
         Set<Map.Entry<Byte, byte[]>> faces = Cube.FACES.entrySet();
         
         while(!queue.isEmpty()) {
             //System.out.println(Arrays.toString(queue.peek().state));
             CubeNode current = queue.poll();
-            
-            for (Map.Entry<Byte, byte[]> face: faces) {
-                byte[] newState = Cube.rotate(current.state, face.getKey(), 1);
-                int enCorner = Integer.parseInt(encodeCorners(newState));
-                
-                if (cornerHeuristic[enCorner] == 0)
-                    queue.add(new CubeNode(newState, current.heuristic + 1));
-                
+            //Every state of a depth is marked before the first of them is polled
+            if (current.heuristic > reported) {
+                reported = current.heuristic;
+                monitor.layer(reported, layers[reported]);
             }
             
-            String enCorner = encodeCorners(current.state);
-            int enCornerInt = Integer.parseInt(enCorner);
-            if (cornerHeuristic[enCornerInt] == 0) {
-                cornerHeuristic[enCornerInt] = (byte)current.heuristic;
-                System.out.println(enCorner + "," + current.heuristic);
+            for (Map.Entry<Byte, byte[]> face: faces) {
+                for (int turns = 1; turns < 4; turns++) {
+                    byte[] newState = Cube.rotate(current.state, face.getKey(), turns);
+                    int enCorner = rankCorners(newState);
+                    
+                    //Mark states when they are queued, so each is queued once
+                    if (cornerHeuristic[enCorner] == UNSEEN) {
+                        cornerHeuristic[enCorner] = (byte)(current.heuristic + 1);
+                        queue.add(new CubeNode(newState, current.heuristic + 1));
+                        layers[current.heuristic + 1]++;
+                    }
+                }
             }
         }
         
-        //writeToBinaryFile(cornerHeuristic, "corners.txt");
+        monitor.finish();
+        return cornerHeuristic;
         
     }
     
     /**
      * Generates edge heuristics for the Rubik's Cube using Korf's Algorithm 
      * and a breadth-first search. This applies only to the first six edges.
+     * Progress is printed once per depth layer.
+     * @return edge heuristic table (first set)
      */
-    public static void edgeFirstHeuristic() {
+    public static byte[] edgeFirstHeuristic() {
+        return edgeFirstHeuristic(System.out::println);
+    }
+    
+    /**
+     * Generates the edge heuristic table as above, reporting progress once per
+     * depth layer.
+     * @param listener listener of the progress, or null for none
+     * @return edge heuristic table (first set)
+     */
+    public static byte[] edgeFirstHeuristic(GenerationListener listener) {
         
         //1-52
         //3-10
@@ -120,41 +208,59 @@ public class KorfAlgorithm {
         Queue<CubeNode> queue = new LinkedList<>();
         
         queue.add(new CubeNode(cube.cube, 0));
-        edgeFirstHeuristic = new byte[MAX_EDGE_STATES];
+        byte[] edgeFirstHeuristic = new byte[MAX_EDGE_STATES];
+        Arrays.fill(edgeFirstHeuristic, UNSEEN);
+        edgeFirstHeuristic[rankFirstEdges(cube.cube)] = 0;
+        GenerationMonitor monitor = new GenerationMonitor(PatternDatabase.FIRST_EDGES, listener);
+        monitor.layer(0, 1);
+        long[] layers = new long[EDGE_DEPTH_LIMIT + 2];
+        int reported = 0;
         Set<Map.Entry<Byte, byte[]>> faces = Cube.FACES.entrySet();
         
         while (!queue.isEmpty()) {
             CubeNode current = queue.poll();
+            //Every state of a depth is marked before the first of them is polled
+            if (current.heuristic > reported) {
+                reported = current.heuristic;
+                monitor.layer(reported, layers[reported]);
+            }
             
             for (Map.Entry<Byte, byte[]> face: faces) {
-                byte[] newState = Cube.rotate(current.state, face.getKey(), 1);
-                int enEdge = Integer.parseInt(encodeFirstEdges(newState));
-                String temp = String.valueOf(enEdge);
-                
-                for (int i = 0; i < temp.length(); i++) {
-                    int j = Character.digit(temp.charAt(i), 10);
-                    if (edgeFirstHeuristic[j] == 0)
+                for (int turns = 1; turns < 4; turns++) {
+                    byte[] newState = Cube.rotate(current.state, face.getKey(), turns);
+                    int enEdge = rankFirstEdges(newState);
+                    
+                    if (edgeFirstHeuristic[enEdge] == UNSEEN) {
+                        edgeFirstHeuristic[enEdge] = (byte)(current.heuristic + 1);
                         queue.add(new CubeNode(newState, current.heuristic + 1));
+                        layers[current.heuristic + 1]++;
+                    }
                 }
             }
-            
-            String enEdge = encodeFirstEdges(current.state);
-            int enEdgeInt = Integer.parseInt(enEdge);
-            if (edgeFirstHeuristic[enEdgeInt] == 0) {
-                edgeFirstHeuristic[enEdgeInt] = (byte)current.heuristic;
-                //System.out.println(enEdge + "," + current.heuristic);
-            }
         } 
         
-        //writeToBinaryFile(edgeFirstHeuristic, "edges1.txt");
+        monitor.finish();
+        return edgeFirstHeuristic;
         
     }
     
     /**
      * Generates edge heuristics for the Rubik's Cube using Korf's Algorithm 
      * and a breadth-first search. This applies only to the second six edges.
+     * Progress is printed once per depth layer.
+     * @return edge heuristic table (second set)
+     */
+    public static byte[] edgeSecondHeuristic() {
+        return edgeSecondHeuristic(System.out::println);
+    }
+    
+    /**
+     * Generates the edge heuristic table as above, reporting progress once per
+     * depth layer.
+     * @param listener listener of the progress, or null for none
+     * @return edge heuristic table (second set)
      */
-    public static void edgeSecondHeuristic() {
+    public static byte[] edgeSecondHeuristic(GenerationListener listener) {
         
         //23-24
         //26-50
@@ -168,230 +274,269 @@ public class KorfAlgorithm {
         Queue<CubeNode> queue = new LinkedList<>();
         
         queue.add(new CubeNode(cube.cube, 0));
-        edgeSecondHeuristic = new byte[MAX_EDGE_STATES];
+        byte[] edgeSecondHeuristic = new byte[MAX_EDGE_STATES];
+        Arrays.fill(edgeSecondHeuristic, UNSEEN);
+        edgeSecondHeuristic[rankSecondEdges(cube.cube)] = 0;
+        GenerationMonitor monitor = new GenerationMonitor(PatternDatabase.SECOND_EDGES, listener);
+        monitor.layer(0, 1);
+        long[] layers = new long[EDGE_DEPTH_LIMIT + 2];
+        int reported = 0;
         Set<Map.Entry<Byte, byte[]>> faces = Cube.FACES.entrySet();
         
         while (!queue.isEmpty()) {
             CubeNode current = queue.poll();
+            //Every state of a depth is marked before the first of them is polled
+            if (current.heuristic > reported) {
+                reported = current.heuristic;
+                monitor.layer(reported, layers[reported]);
+            }
             
             for (Map.Entry<Byte, byte[]> face: faces) {
-                byte[] newState = Cube.rotate(current.state, face.getKey(), 1);
-                int enEdge = Integer.parseInt(encodeSecondEdges(newState));
-                String temp = String.valueOf(enEdge);
-                
-                for (int i = 0; i < temp.length(); i++) {
-                    int j = Character.digit(temp.charAt(i), 10);
-                    if (edgeSecondHeuristic[j] == 0)
+                for (int turns = 1; turns < 4; turns++) {
+                    byte[] newState = Cube.rotate(current.state, face.getKey(), turns);
+                    int enEdge = rankSecondEdges(newState);
+                    
+                    if (edgeSecondHeuristic[enEdge] == UNSEEN) {
+                        edgeSecondHeuristic[enEdge] = (byte)(current.heuristic + 1);
                         queue.add(new CubeNode(newState, current.heuristic + 1));
+                        layers[current.heuristic + 1]++;
+                    }
                 }
             }
-            
-            String enEdge = encodeSecondEdges(current.state);
-            int enEdgeInt = Integer.parseInt(enEdge);
-            if (edgeSecondHeuristic[enEdgeInt] == 0) {
-                edgeSecondHeuristic[enEdgeInt] = (byte)current.heuristic;
-                //System.out.println(enEdge + "," + current.heuristic);
-            }
         }
         
-        //writeToBinaryFile(edgeSecondHeuristic, "edges2.txt");
+        monitor.finish();
+        return edgeSecondHeuristic;
         
     }
     
     /**
-     * Writes the heuristic value contained in a byte table to a text file.
-     * @param byteArray byte array containing heuristic values.
-     * @param filename specified destination file.
+     * Ranks the corner cubies of a cube state. The permutation of the corners
+     * is ranked by its Lehmer code and the orientation of the first seven 
+     * corners as a base-3 number, giving an index in [0, MAX_CORNER_STATES).
+     * @param state current state of the cube
+     * @return corner index
      */
-    private static void writeToBinaryFile(byte[] table, String filename) {
-        
-        int lineCount = 0;
+    public static int rankCorners(byte[] state) {
         
-        try {
-            
-//            FileOutputStream fos = new FileOutputStream(filename);
-//            fos.write(table);
-//            fos.flush();
-//            fos.close();
-            
-            PrintWriter pw = new PrintWriter(new BufferedOutputStream(new FileOutputStream(filename)));
-            
-            for (int i = 0; i < table.length; i+=2) {
-                byte b1 = (byte)(table[i] | table[i+1]);
-                pw.print(b1);
-                lineCount += 1;
-            }
+        byte[][] corners = Cube.CORNERS;
+        int used = 0;
+        int permutation = 0;
+        int orientation = 0;
+        
+        //The eighth corner is determined by the other seven
+        for (int i = 0; i < corners.length - 1; i++) {
+            byte a = state[corners[i][0]];
+            byte b = state[corners[i][1]];
+            byte c = state[corners[i][2]];
+            int cubie = CORNER_LOOKUP[(1 << a) | (1 << b) | (1 << c)];
             
-        } catch (FileNotFoundException e) {
-            System.err.println("Error occurred while writing heuristic to file at line " + lineCount);
+            permutation = permutation * (corners.length - i) 
+                    + Integer.bitCount(~used & ((1 << cubie) - 1));
+            used |= 1 << cubie;
+            orientation = orientation * 3 + (isUpDown(a) ? 0 : isUpDown(b) ? 1 : 2);
         }
         
+        return permutation * CORNER_ORIENTATIONS + orientation;
+        
     }
     
     /**
-     * Reads the heuristic values from a file and stores them as bytes in a 
-     * byte table.
-     * @param filename binary file containing heuristic
-     * @param tSize size of byte array
-     * @return 
+     * Writes the corner cubies described by a corner index into a cube state.
+     * The edge facelets of the state are left untouched.
+     * @param index corner index, as returned by rankCorners
+     * @param state cube state the corners are written to
      */
-    protected static byte[] readFromBinaryFile(String filename, int tSize) {
-        
-        byte[] heuristic = new byte[tSize];
+    public static void unrankCorners(int index, byte[] state) {
         
-        try {
+        byte[][] corners = Cube.CORNERS;
+        int permutation = index / CORNER_ORIENTATIONS;
+        int orientation = index % CORNER_ORIENTATIONS;
+        int used = 0;
+        int twist = 0;
+        
+        for (int i = 0; i < corners.length; i++) {
+            int radix = FACTORIAL[corners.length - 1 - i];
+            int digit = permutation / radix;
+            permutation %= radix;
             
-            FileReader fr = new FileReader(filename);
-            BufferedReader bf = new BufferedReader(fr);
+            //Take the digit-th smallest cubie that has not been placed yet
+            int cubie = nthClearBit(used, digit);
+            used |= 1 << cubie;
             
-            for (int i = 0; i < tSize; i++) {
-                heuristic[i] = Byte.parseByte(bf.readLine());
+            int o;
+            if (i < corners.length - 1) {
+                o = (orientation / POWERS_OF_THREE[corners.length - 2 - i]) % 3;
+                twist += o;
+            } else {
+                o = (3 - twist % 3) % 3;
             }
-        
-        } catch (IOException e) {
-            System.err.println("Error occurred while reading heuristic from file: " + filename);
+            
+            for (int k = 0; k < 3; k++)
+                state[corners[i][(k + o) % 3]] = CORNER_COLORS[cubie][k];
         }
         
-        return heuristic;
-                    
     }
     
     /**
-     * Maps corners to goal state and handles variable-based encoding for corners.
+     * Checks if a color belongs to the up or down face (red or orange).
+     * @param color facelet color
+     * @return true if the color is red or orange, false otherwise
+     */
+    protected static boolean isUpDown(byte color) {
+        return color == 0 || color == 4;
+    }
+    
+    /**
+     * @param subset bitmask of the tracked edge cubies (index in Cube.EDGES)
+     * @return number of edge indices for the subset, (12!)/(12-k)!*(2^k) for
+     *         k tracked cubies
+     */
+    public static long edgeStates(int subset) {
+        int count = Integer.bitCount(subset);
+        long states = 1L << count;
+        for (int i = 0; i < count; i++)
+            states *= Cube.EDGES.length - i;
+        return states;
+    }
+    
+    /**
+     * Ranks the first six edge cubies of a cube state.
      * @param state current state of the cube
-     * @return encoded corner state
+     * @return edge index in [0, MAX_EDGE_STATES)
      */
-    protected static String encodeCorners(byte[] state) {
-        
-        String[] encoded = new String[8]; //8 corners
-        byte[][] corners = Cube.CORNERS;
-        HashMap<Integer, Integer> mapped = new HashMap<>();
-        HashMap<String, Integer> goal = new HashMap<>();
-
-        goal.put("015", 0); //RED WHITE GREEN
-        goal.put("035", 1); //RED WHITE BLUE
-        goal.put("012", 2); //RED YELLOW GREEN
-        goal.put("023", 3); //RED YELLOW BLUE
-        goal.put("124", 4); //ORANGE YELLOW GREEN
-        goal.put("234", 5); //ORANGE YELLOW BLUE
-        goal.put("145", 6); //ORANGE WHITE GREEN
-        goal.put("345", 7); //ORANGE WHITE BLUE
-
-        for(int i = 0; i < corners.length; i++) {
-            String temp = "";
-
-            for (int s : corners[i])
-                temp += state[s];
-
-            char[] c = temp.toCharArray();
-            Arrays.sort(c);
-            mapped.put(goal.get(new String(c)), i);
-        }
-
-        for (int j = 0; j < mapped.size(); j++) {
-            int difference = 0;
-            int aCorner = mapped.get(j);
-            
-            for (int k = 0; k < j; k++) {
-                if (mapped.get(j) < aCorner)
-                    difference++;
-            }
-            encoded[j] = Integer.toString(aCorner - difference);
-        }
-        
-        StringBuilder sb = new StringBuilder();
-        for (String encoded1 : encoded)
-            sb.append(encoded1);
-        
-        return sb.toString();
-        
+    public static int rankFirstEdges(byte[] state) {
+        return (int)rankEdges(state, FIRST_EDGES);
     }
     
     /**
-     * Maps edges to goal state and handles variable-based encoding for edges.
-     * This applies to the first six edges only.
+     * Ranks the second six edge cubies of a cube state.
      * @param state current state of the cube
-     * @return encoded edge (first set) state
+     * @return edge index in [0, MAX_EDGE_STATES)
      */
-    protected static String encodeFirstEdges(byte[] state) {
-        
-        byte[][] edges = Cube.EDGES_1;
-        HashMap<Integer, Integer> mapped = new HashMap<>();
-        HashMap<String, Integer> goal = new HashMap<>();
+    public static int rankSecondEdges(byte[] state) {
+        return (int)rankEdges(state, SECOND_EDGES);
+    }
+    
+    /**
+     * Ranks the position and orientation of a subset of the edge cubies. The
+     * positions of the tracked cubies are ranked as a partial permutation of 
+     * the twelve edge positions, 12*11*...*(13-k) for k tracked cubies, and 
+     * their orientations are appended as k bits.
+     * @param state current state of the cube
+     * @param subset bitmask of the tracked edge cubies (index in Cube.EDGES)
+     * @return edge index in [0, edgeStates(subset))
+     */
+    public static long rankEdges(byte[] state, int subset) {
         
-        goal.put("05", 0); //RED WHITE
-        goal.put("01", 1); //RED GREEN
-        goal.put("03", 2); //RED BLUE
-        goal.put("02", 3); //RED YELLOW
-        goal.put("15", 4); //GREEN WHITE
-        goal.put("12", 5); //GREEN YELLOW
+        byte[][] edges = Cube.EDGES;
+        long slots = 0;
         
-        for (int i = 0; i < edges.length; i++) {
-            String temp = "";
-            
-            for (int s: edges[i])
-                temp += state[s];
+        //Find the position and orientation of every tracked cubie
+        for (int p = 0; p < edges.length; p++) {
+            byte a = state[edges[p][0]];
+            byte b = state[edges[p][1]];
+            int cubie = EDGE_LOOKUP[(1 << a) | (1 << b)];
             
-            char[] c = temp.toCharArray();
-            Arrays.sort(c);
-            mapped.put(goal.get(new String(c)), i);
+            if ((subset & (1 << cubie)) != 0) {
+                int slot = Integer.bitCount(subset & ((1 << cubie) - 1));
+                int flip = a == EDGE_COLORS[cubie][0] ? 0 : 1;
+                slots |= (long)(p << 1 | flip) << (5 * slot);
+            }
         }
         
-        StringBuilder sb = new StringBuilder();
-        for (int j = 0; j < mapped.size(); j++) 
-            sb.append(mapped.get(j));
+        int count = Integer.bitCount(subset);
+        int used = 0;
+        int permutation = 0;
+        int orientation = 0;
         
-        return sb.toString();
+        for (int i = 0; i < count; i++) {
+            int slot = (int)(slots >>> (5 * i)) & 31;
+            int position = slot >>> 1;
+            
+            permutation = permutation * (edges.length - i) 
+                    + Integer.bitCount(~used & ((1 << position) - 1));
+            used |= 1 << position;
+            orientation = orientation << 1 | (slot & 1);
+        }
+        
+        return (long)permutation << count | orientation;
         
     }
     
     /**
-     * Maps edges to goal state and handles variable-based encoding for edges.
-     * This applies to the second six edges only.
-     * @param state current state of the cube
-     * @return encoded edge (second set) state
+     * Writes the edge cubies described by an edge index into a cube state.
+     * Positions not taken by a tracked cubie are filled with the untracked 
+     * cubies in order, so the result can be ranked again after a rotation.
+     * The corner facelets of the state are left untouched.
+     * @param index edge index, as returned by rankEdges
+     * @param subset bitmask of the tracked edge cubies (index in Cube.EDGES)
+     * @param state cube state the edges are written to
      */
-    protected static String encodeSecondEdges(byte[] state) {
-        
-        byte[][] edges = Cube.EDGES_2;
-        HashMap<Integer, Integer> mapped = new HashMap<>();
-        HashMap<String, Integer> goal = new HashMap<>();
-        
-        goal.put("23", 0); //BLUE YELLOW
-        goal.put("35", 1); //BLUE WHITE
-        goal.put("14", 2); //ORANGE GREEN
-        goal.put("24", 3); //ORANGE YELLOW
-        goal.put("34", 4); //ORANGE BLUE
-        goal.put("45", 5); //ORANGE WHITE
-        
-        for (int i = 0; i < edges.length; i++) {
-            String temp = "";
+    public static void unrankEdges(long index, int subset, byte[] state) {
+        
+        byte[][] edges = Cube.EDGES;
+        int count = Integer.bitCount(subset);
+        int permutation = (int)(index >>> count);
+        int orientation = (int)index & ((1 << count) - 1);
+        int used = 0;
+        int radix = 1;
+        
+        for (int i = 1; i < count; i++)
+            radix *= edges.length - i;
+        
+        int cubie = -1;
+        for (int i = 0; i < count; i++) {
+            do {
+                cubie++;
+            } while ((subset & (1 << cubie)) == 0);
+            
+            int digit = permutation / radix;
+            permutation %= radix;
+            if (i < count - 1)
+                radix /= edges.length - 1 - i;
             
-            for (int s: edges[i])
-                temp += state[s];
+            int position = nthClearBit(used, digit);
+            used |= 1 << position;
             
-            char[] c = temp.toCharArray();
-            Arrays.sort(c);
-            mapped.put(goal.get(new String(c)), i);
+            int flip = (orientation >>> (count - 1 - i)) & 1;
+            state[edges[position][flip]] = EDGE_COLORS[cubie][0];
+            state[edges[position][1 - flip]] = EDGE_COLORS[cubie][1];
         }
         
-        StringBuilder sb = new StringBuilder();
-        for (int j = 0; j < mapped.size(); j++) 
-            sb.append(mapped.get(j));
-        
-        return sb.toString();
+        for (cubie = 0; cubie < edges.length; cubie++) {
+            if ((subset & (1 << cubie)) != 0)
+                continue;
+            
+            int position = nthClearBit(used, 0);
+            used |= 1 << position;
+            state[edges[position][0]] = EDGE_COLORS[cubie][0];
+            state[edges[position][1]] = EDGE_COLORS[cubie][1];
+        }
         
     }
     
+    /**
+     * Finds the n-th (zero based) clear bit of a bitmask.
+     * @param mask bitmask
+     * @param n number of clear bits to skip
+     * @return index of the clear bit
+     */
+    protected static int nthClearBit(int mask, int n) {
+        int bit = -1;
+        do {
+            bit++;
+            if ((mask & (1 << bit)) == 0)
+                n--;
+        } while (n >= 0);
+        return bit;
+    }
+
 //    public static void main(String[] args) {
         //cornerHeuristic();
         //edgeFirstHeuristic();
         //edgeSecondHeuristic();
-        
-        //writeToBinaryFile(cornerHeuristic, "corners.txt");
-        //writeToBinaryFile(edgeFirstHeuristic, "edge1.txt");
-        //writeToBinaryFile(edgeSecondHeuristic, "edge2.txt");
-        
+
 //    }
     
 }
@@ -0,0 +1,227 @@
+package rubik;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * IDA* search spread over the threads of a ForkJoinPool. Every iteration
+ * splits the tree below the start state into subtrees at SPLIT_DEPTH, which
+ * idle threads steal from each other. Each subtree is searched by the
+ * Searcher of the thread running it. All subtrees of an iteration share its
+ * bound and a flag that stops them once any of them reaches the goal, and
+ * the next bound is the concurrent minimum of the values that exceeded it.
+ * The threads may also share one transposition table.
+ */
+public class ParallelSearcher {
+    
+    /**
+     * Depth at which the tree is split into subtrees, about 240 of them.
+     */
+    public static final int SPLIT_DEPTH = 2;
+    
+    private final Heuristic heuristic;
+    private final ForkJoinPool pool;
+    private final TranspositionTable transpositions;
+    private long nodes;
+    private SearchMonitor monitor = new SearchMonitor(null);
+    
+    /**
+     * Searcher using the common ForkJoinPool.
+     * @param heuristic corner and edge heuristic
+     */
+    public ParallelSearcher(Heuristic heuristic) {
+        this(heuristic, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * @param heuristic corner and edge heuristic
+     * @param pool pool the subtrees are searched on
+     */
+    public ParallelSearcher(Heuristic heuristic, ForkJoinPool pool) {
+        this(heuristic, pool, null);
+    }
+    
+    /**
+     * @param heuristic corner and edge heuristic
+     * @param pool pool the subtrees are searched on
+     * @param transpositions table shared by every thread, or null to search
+     *        without one
+     */
+    public ParallelSearcher(Heuristic heuristic, ForkJoinPool pool, TranspositionTable transpositions) {
+        this.heuristic = heuristic;
+        this.pool = pool;
+        this.transpositions = transpositions;
+    }
+    
+    /**
+     * Finds an optimal solution for a cube state.
+     * @param state start state of the cube
+     * @return solution as face and turn digit pairs, as in IDAStar
+     * @throws IllegalArgumentException if there is no solution within
+     *         Searcher.MAX_DEPTH moves
+     */
+    public String solve(byte[] state) {
+        
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<String> solution = new AtomicReference<>();
+        List<Searcher> searchers = new ArrayList<>();
+        ConcurrentLinkedQueue<Searcher> created = new ConcurrentLinkedQueue<>();
+        
+        monitor.startSolve();
+        Searcher root = new Searcher(heuristic, stop);
+        int bound = root.start(state);
+        searchers.add(root);
+        long[] histogram = new long[SearchMetrics.HISTOGRAM_SIZE];
+        long[] prunes = new long[SearchMetrics.REASONS];
+        
+        //Each thread keeps one searcher for the whole solve
+        ThreadLocal<Searcher> local = ThreadLocal.withInitial(() -> {
+            Searcher searcher = new Searcher(heuristic, stop, root.dual(), transpositions);
+            searcher.start(state);
+            created.add(searcher);
+            return searcher;
+        });
+        
+        while (solution.get() == null) {
+            if (bound > Searcher.MAX_DEPTH) {
+                monitor.finishSolve(-1, false);
+                throw new IllegalArgumentException("No solution within " + Searcher.MAX_DEPTH + " moves");
+            }
+            
+            AtomicInteger next = new AtomicInteger(Integer.MAX_VALUE);
+            int stamp = transpositions == null ? 0 : transpositions.nextStamp();
+            monitor.startIteration();
+            pool.invoke(new Subtree(new byte[SPLIT_DEPTH], 0, -1, bound, stamp, local, next, stop, solution));
+            
+            //The iteration has ended, so the counts of every thread are visible here
+            searchers.addAll(created);
+            created.clear();
+            Arrays.fill(histogram, 0);
+            Arrays.fill(prunes, 0);
+            nodes = 0;
+            for (Searcher searcher : searchers) {
+                nodes += searcher.nodes();
+                SearchMonitor.add(histogram, searcher.heuristicCounts());
+                SearchMonitor.add(prunes, searcher.pruneCounts());
+                searcher.clearCounts();
+            }
+            monitor.finishIteration(bound, nodes, histogram, prunes, false);
+            bound = next.get();
+        }
+        
+        monitor.finishSolve(solution.get().length() / 2, false);
+        return solution.get();
+        
+    }
+    
+    /**
+     * @return number of nodes visited by the last solve, over all threads
+     */
+    public long nodes() {
+        return nodes;
+    }
+    
+    /**
+     * Reports the metrics of every following solve, summed over all
+     * threads, see SearchMetrics.
+     * @param listener listener of the solves, or null for none
+     */
+    public void setListener(SearchListener listener) {
+        this.monitor = new SearchMonitor(listener);
+    }
+    
+    /**
+     * Searches the subtree below a sequence of moves, forking a task for
+     * every child above SPLIT_DEPTH.
+     */
+    private static class Subtree extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final byte[] prefix;
+        private final int depth;
+        private final int last;
+        private final int bound;
+        private final int stamp;
+        private final ThreadLocal<Searcher> local;
+        private final AtomicInteger next;
+        private final AtomicBoolean stop;
+        private final AtomicReference<String> solution;
+        
+        Subtree(byte[] prefix, int depth, int last, int bound, int stamp, ThreadLocal<Searcher> local,
+                AtomicInteger next, AtomicBoolean stop, AtomicReference<String> solution) {
+            this.prefix = prefix;
+            this.depth = depth;
+            this.last = last;
+            this.bound = bound;
+            this.stamp = stamp;
+            this.local = local;
+            this.next = next;
+            this.stop = stop;
+            this.solution = solution;
+        }
+        
+        @Override
+        protected void compute() {
+            
+            if (stop.get())
+                return;
+            
+            Searcher searcher = local.get();
+            int h = searcher.restart(prefix, depth);
+            
+            if (depth == SPLIT_DEPTH) {
+                searcher.setStamp(stamp);
+                finish(searcher, searcher.search(depth, h, bound, last));
+                return;
+            }
+            
+            if (depth + h > bound) {
+                next.accumulateAndGet(depth + h, Math::min);
+                return;
+            }
+            if (h == 0 && searcher.isSolved()) {
+                finish(searcher, Searcher.FOUND);
+                return;
+            }
+            
+            List<Subtree> children = new ArrayList<>();
+            for (int face = 0; face < 6; face++) {
+                if (Cube.isRedundant(last, face))
+                    continue;
+                for (int turns = 0; turns < 3; turns++) {
+                    byte[] child = prefix.clone();
+                    child[depth] = (byte)(face * 3 + turns);
+                    children.add(new Subtree(child, depth + 1, face, bound, stamp, local,
+                            next, stop, solution));
+                }
+            }
+            invokeAll(children);
+            
+        }
+        
+        /**
+         * Records the result of a subtree.
+         * @param searcher searcher that reached the result
+         * @param result Searcher.FOUND or the smallest value exceeding the bound
+         */
+        private void finish(Searcher searcher, int result) {
+            if (result == Searcher.FOUND) {
+                //Every solution found within the bound is optimal, keep the first
+                if (solution.compareAndSet(null, searcher.solution()))
+                    stop.set(true);
+            } else {
+                next.accumulateAndGet(result, Math::min);
+            }
+        }
+        
+    }
+    
+}
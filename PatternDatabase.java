@@ -0,0 +1,430 @@
+package rubik;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A heuristic table, backed either by byte arrays or by read-only
+ * memory-mapped files. Mapped tables are shared through the page cache by every
+ * process that maps the same file. Tables are held in segments of at most
+ * 1 GiB, so tables of more than 2^31 entries (eight edge cubies) fit.
+ *
+ * Entries are either one byte holding the depth of the state, or two bits
+ * holding the depth modulo 3 (four entries per byte). Packed entries are
+ * turned back into depths by Heuristic.
+ *
+ * The file format is a fixed header followed by the entries:
+ * magic (int), format version (int), table kind (int), encoder version (int),
+ * bits per entry (int), entry count (long), CRC32 checksum of the entries
+ * (long), padding (int). Checking the checksum reads the whole file, so it is
+ * optional when mapping, and a mapped table otherwise only touches the pages
+ * its lookups reach.
+ */
+public class PatternDatabase {
+    
+    public static final int CORNERS = 0;
+    public static final int FIRST_EDGES = 1;
+    public static final int SECOND_EDGES = 2;
+    
+    /**
+     * Corner table reduced by the symmetries in Symmetry.
+     */
+    public static final int SYM_CORNERS = 3;
+    
+    /**
+     * Flag of the edge table kinds made by edges, which hold the subset of
+     * tracked edge cubies in their low twelve bits.
+     */
+    public static final int EDGES = 0x10000;
+    
+    /**
+     * "RPDB" in ASCII.
+     */
+    private static final int MAGIC = 0x52504442;
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 40;
+    
+    private static final int BYTE_ENTRIES = 8;
+    private static final int PACKED_ENTRIES = 2;
+    
+    private static final int SEGMENT_BITS = 30;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+    
+    private final int kind;
+    private final int bits;
+    private final long size;
+    private final ByteBuffer[] segments;
+    
+    /**
+     * Wraps an in-memory heuristic table of one byte per entry.
+     * @param kind table kind (CORNERS, SYM_CORNERS, FIRST_EDGES, SECOND_EDGES or edges)
+     * @param table heuristic values
+     */
+    public PatternDatabase(int kind, byte[] table) {
+        this(kind, BYTE_ENTRIES, table.length, new ByteBuffer[] {ByteBuffer.wrap(table)});
+    }
+    
+    private PatternDatabase(int kind, int bits, long size, ByteBuffer[] segments) {
+        this.kind = kind;
+        this.bits = bits;
+        this.size = size;
+        this.segments = segments;
+    }
+    
+    /**
+     * Allocates an in-memory table of one byte per entry for every state of
+     * a table kind, to be filled in with set.
+     * @param kind table kind (CORNERS, SYM_CORNERS, FIRST_EDGES, SECOND_EDGES or edges)
+     * @return table of zero entries
+     */
+    public static PatternDatabase allocate(int kind) {
+        long size = size(kind);
+        return new PatternDatabase(kind, BYTE_ENTRIES, size, allocateSegments(size));
+    }
+    
+    /**
+     * Packs a heuristic table into two bits per entry, keeping each depth
+     * modulo 3. Entries never reached during generation are packed as 0.
+     * @param kind table kind (CORNERS, SYM_CORNERS, FIRST_EDGES, SECOND_EDGES or edges)
+     * @param table heuristic values
+     * @return packed table
+     */
+    public static PatternDatabase pack(int kind, byte[] table) {
+        return new PatternDatabase(kind, table).pack();
+    }
+    
+    /**
+     * Packs this table of one byte per entry into two bits per entry,
+     * keeping each depth modulo 3. Entries never reached during generation
+     * are packed as 0.
+     * @return packed table
+     */
+    public PatternDatabase pack() {
+        
+        if (bits == PACKED_ENTRIES)
+            return this;
+        
+        ByteBuffer[] packed = allocateSegments((size + 3) / 4);
+        for (long i = 0; i < size; i++) {
+            int depth = get(i);
+            if (depth > 0) {
+                ByteBuffer segment = packed[(int)(i >>> (SEGMENT_BITS + 2))];
+                int offset = (int)(i >>> 2) & SEGMENT_MASK;
+                segment.put(offset, (byte)(segment.get(offset) | (depth % 3) << ((i & 3) << 1)));
+            }
+        }
+        
+        return new PatternDatabase(kind, PACKED_ENTRIES, size, packed);
+        
+    }
+    
+    /**
+     * Gets the table entry of a state: its depth, or its depth modulo 3 if
+     * the table is packed.
+     * @param index index of the state in the table
+     * @return table entry
+     */
+    public byte get(long index) {
+        if (bits == PACKED_ENTRIES) {
+            long offset = index >>> 2;
+            byte entries = segments[(int)(offset >>> SEGMENT_BITS)].get((int)offset & SEGMENT_MASK);
+            return (byte)((entries >>> ((index & 3) << 1)) & 3);
+        }
+        return segments[(int)(index >>> SEGMENT_BITS)].get((int)index & SEGMENT_MASK);
+    }
+    
+    /**
+     * Sets the entry of a state in a table of one byte per entry. Entries
+     * may be set from several threads, as long as each entry is set by one.
+     * @param index index of the state in the table
+     * @param depth table entry
+     */
+    public void set(long index, byte depth) {
+        segments[(int)(index >>> SEGMENT_BITS)].put((int)index & SEGMENT_MASK, depth);
+    }
+    
+    /**
+     * Sets every entry of a table allocated by allocate.
+     * @param depth table entry
+     */
+    public void fill(byte depth) {
+        for (ByteBuffer segment : segments)
+            Arrays.fill(segment.array(), depth);
+    }
+    
+    /**
+     * @return true if entries hold depths modulo 3, false if exact depths
+     */
+    public boolean isPacked() {
+        return bits == PACKED_ENTRIES;
+    }
+    
+    /**
+     * @return number of entries in the table
+     */
+    public long size() {
+        return size;
+    }
+    
+    /**
+     * @return table kind (CORNERS, SYM_CORNERS, FIRST_EDGES, SECOND_EDGES or edges)
+     */
+    public int kind() {
+        return kind;
+    }
+    
+    /**
+     * Writes the table to a file.
+     * @param filename destination file
+     * @throws IOException
+     */
+    public void write(String filename) throws IOException {
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(kind);
+        header.putInt(KorfAlgorithm.ENCODER_VERSION);
+        header.putInt(bits);
+        header.putLong(size);
+        header.putLong(checksum(segments));
+        header.putInt(0);
+        header.flip();
+        
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining())
+                channel.write(header);
+            for (ByteBuffer segment : segments) {
+                ByteBuffer entries = segment.duplicate();
+                entries.clear();
+                while (entries.hasRemaining())
+                    channel.write(entries);
+            }
+            channel.force(false);
+        }
+        
+    }
+    
+    /**
+     * Maps a table file into memory after checking its header.
+     * @param filename file written by write
+     * @param kind expected table kind
+     * @return memory-mapped table
+     * @throws IOException if the file cannot be read or is not a valid table
+     */
+    public static PatternDatabase map(String filename, int kind) throws IOException {
+        return map(filename, kind, false);
+    }
+    
+    /**
+     * Maps a table file into memory after checking its header and, if asked
+     * to, its checksum.
+     * @param filename file written by write
+     * @param kind expected table kind
+     * @param verify true to check the checksum, which reads every entry
+     * @return memory-mapped table
+     * @throws IOException if the file cannot be read or is not a valid table
+     */
+    public static PatternDatabase map(String filename, int kind, boolean verify) throws IOException {
+        
+        Path path = Paths.get(filename);
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                //Keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+                throw new IOException("Not a heuristic table: " + filename);
+            if (header.getInt() != VERSION)
+                throw new IOException("Unsupported heuristic table version: " + filename);
+            if (header.getInt() != kind)
+                throw new IOException("Unexpected heuristic table kind: " + filename);
+            if (header.getInt() != KorfAlgorithm.ENCODER_VERSION)
+                throw new IOException("Heuristic table built by another encoder version: " + filename);
+            
+            int bits = header.getInt();
+            long size = header.getLong();
+            long checksum = header.getLong();
+            if (bits != BYTE_ENTRIES && bits != PACKED_ENTRIES)
+                throw new IOException("Unsupported heuristic table entry size: " + filename);
+            
+            long length = bits == BYTE_ENTRIES ? size : (size + 3) / 4;
+            if (size != size(kind) || channel.size() != HEADER_SIZE + length)
+                throw new IOException("Truncated heuristic table: " + filename);
+            
+            //The mappings stay valid after the channel is closed
+            ByteBuffer[] segments = new ByteBuffer[segmentCount(length)];
+            for (int i = 0; i < segments.length; i++) {
+                long offset = (long)i << SEGMENT_BITS;
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + offset, Math.min(length - offset, 1L << SEGMENT_BITS));
+                segments[i] = segment;
+            }
+            if (verify && checksum(segments) != checksum)
+                throw new IOException("Heuristic table checksum mismatch: " + filename);
+            
+            return new PatternDatabase(kind, bits, size, segments);
+        }
+        
+    }
+    
+    /**
+     * @param subset bitmask of the tracked edge cubies (index in Cube.EDGES)
+     * @return kind of the edge table for that subset
+     * @throws IllegalArgumentException if the subset is empty, has more than
+     *         eight edge cubies or names cubies that do not exist
+     */
+    public static int edges(int subset) {
+        if (subset <= 0 || subset >= 1 << Cube.EDGES.length || Integer.bitCount(subset) > 8)
+            throw new IllegalArgumentException("Unsupported edge subset: " + Integer.toHexString(subset));
+        return EDGES | subset;
+    }
+    
+    /**
+     * @param kind table kind
+     * @return number of entries in a table of that kind
+     */
+    public static long size(int kind) {
+        switch (kind) {
+            case CORNERS:
+                return KorfAlgorithm.MAX_CORNER_STATES;
+            case SYM_CORNERS:
+                return Symmetry.MAX_CORNER_STATES;
+            default:
+                return KorfAlgorithm.edgeStates(subset(kind));
+        }
+    }
+    
+    /**
+     * @param kind table kind
+     * @return number of entries a state ranks to in a table of that kind,
+     * fewer than its size for the symmetry-reduced corners
+     */
+    public static long states(int kind) {
+        return kind == SYM_CORNERS ? Symmetry.REACHABLE_CORNER_STATES : size(kind);
+    }
+    
+    /**
+     * @param kind table kind
+     * @return bitmask of the edge cubies tracked by that kind, 0 for corners
+     */
+    public static int subset(int kind) {
+        switch (kind) {
+            case CORNERS:
+            case SYM_CORNERS:
+                return 0;
+            case FIRST_EDGES:
+                return KorfAlgorithm.FIRST_EDGES;
+            case SECOND_EDGES:
+                return KorfAlgorithm.SECOND_EDGES;
+            default:
+                return kind & ~EDGES;
+        }
+    }
+    
+    /**
+     * Ranks the cubies tracked by a table kind.
+     * @param kind table kind
+     * @param state current state of the cube
+     * @return index of the state in a table of that kind
+     */
+    public static long rank(int kind, byte[] state) {
+        switch (kind) {
+            case CORNERS:
+                return KorfAlgorithm.rankCorners(state);
+            case SYM_CORNERS:
+                return Symmetry.rankCorners(state);
+            default:
+                return KorfAlgorithm.rankEdges(state, subset(kind));
+        }
+    }
+    
+    /**
+     * Ranks the cubies tracked by a table kind from cubie coordinates.
+     * @param kind table kind
+     * @param permutation corner permutation coordinate, as in CubieCube
+     * @param orientation corner orientation coordinate, as in CubieCube
+     * @param edges edge positions and flips, as in CubieCube.getEdges
+     * @return index of the state in a table of that kind
+     */
+    public static long rank(int kind, int permutation, int orientation, byte[] edges) {
+        switch (kind) {
+            case CORNERS:
+                return permutation * CubieCube.CORNER_ORIENTATIONS + orientation;
+            case SYM_CORNERS:
+                return Symmetry.rankCorners(permutation, orientation);
+            default:
+                return CubieCube.rankEdges(edges, subset(kind));
+        }
+    }
+    
+    /**
+     * Writes the cubies described by a table index into a cube state.
+     * @param kind table kind
+     * @param index index of the state in a table of that kind
+     * @param state cube state the cubies are written to
+     */
+    public static void unrank(int kind, long index, byte[] state) {
+        switch (kind) {
+            case CORNERS:
+                KorfAlgorithm.unrankCorners((int)index, state);
+                break;
+            case SYM_CORNERS:
+                Symmetry.unrankCorners((int)index, state);
+                break;
+            default:
+                KorfAlgorithm.unrankEdges(index, subset(kind), state);
+                break;
+        }
+    }
+    
+    /**
+     * @param length number of bytes
+     * @return number of segments holding that many bytes
+     */
+    private static int segmentCount(long length) {
+        return (int)((length + SEGMENT_MASK) >>> SEGMENT_BITS);
+    }
+    
+    /**
+     * Allocates heap segments holding a number of bytes.
+     * @param length number of bytes
+     * @return zeroed segments
+     */
+    private static ByteBuffer[] allocateSegments(long length) {
+        ByteBuffer[] segments = new ByteBuffer[Math.max(1, segmentCount(length))];
+        for (int i = 0; i < segments.length; i++) {
+            long offset = (long)i << SEGMENT_BITS;
+            segments[i] = ByteBuffer.allocate((int)Math.min(length - offset, 1L << SEGMENT_BITS));
+        }
+        return segments;
+    }
+    
+    /**
+     * Computes the CRC32 checksum of the table entries.
+     * @param segments table entries
+     * @return checksum
+     */
+    private static long checksum(ByteBuffer[] segments) {
+        CRC32 crc = new CRC32();
+        for (ByteBuffer segment : segments) {
+            ByteBuffer entries = segment.duplicate();
+            entries.clear();
+            crc.update(entries);
+        }
+        return crc.getValue();
+    }
+    
+}
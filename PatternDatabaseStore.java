@@ -0,0 +1,204 @@
+package rubik;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/**
+ * Keeps the heuristic tables in a cache directory. A table is mapped from its
+ * file when the file is valid for the current encoder version; otherwise it is
+ * generated once and written to the directory for every later run. Tables
+ * are stored either with one byte per entry or packed to two bits per entry.
+ */
+public class PatternDatabaseStore {
+    
+    /**
+     * System property naming the cache directory.
+     */
+    public static final String DIRECTORY_PROPERTY = "rubik.pdb.dir";
+    public static final String DEFAULT_DIRECTORY = "pdb";
+    
+    /**
+     * System property selecting tables packed to two bits per entry.
+     */
+    public static final String PACKED_PROPERTY = "rubik.pdb.packed";
+    
+    /**
+     * System property selecting the symmetry-reduced corner table, used
+     * unless it is false.
+     */
+    public static final String SYMMETRY_PROPERTY = "rubik.pdb.symmetry";
+    
+    /**
+     * System property listing the edge subsets to build tables for, as
+     * comma-separated hexadecimal bitmasks of edge cubies (index in
+     * Cube.EDGES), for instance "7f,fe0" for two seven-edge tables.
+     */
+    public static final String EDGES_PROPERTY = "rubik.pdb.edges";
+    public static final String DEFAULT_EDGES = "3f,fc0";
+    
+    /**
+     * System property that makes every load check the table checksums, which
+     * reads the whole of every table. Tables are always checked once, right
+     * after they are written.
+     */
+    public static final String VERIFY_PROPERTY = "rubik.pdb.verify";
+    
+    private final Path directory;
+    private final boolean packed;
+    private final boolean symmetric;
+    private final int[] edges;
+    
+    /**
+     * Uses the directory given by the rubik.pdb.dir system property, or "pdb"
+     * in the working directory if it is not set, packed tables if the
+     * rubik.pdb.packed system property is true, the symmetry-reduced corner
+     * table unless the rubik.pdb.symmetry system property is false and the
+     * edge subsets of the rubik.pdb.edges system property, or two tables of
+     * six edges if it is not set.
+     */
+    public PatternDatabaseStore() {
+        this(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY),
+                Boolean.getBoolean(PACKED_PROPERTY),
+                Boolean.parseBoolean(System.getProperty(SYMMETRY_PROPERTY, "true")),
+                parseEdges(System.getProperty(EDGES_PROPERTY, DEFAULT_EDGES)));
+    }
+    
+    /**
+     * Store with the symmetry-reduced corner table and two tables of six
+     * edges.
+     * @param directory cache directory
+     * @param packed true to keep depths modulo 3 in two bits per entry
+     */
+    public PatternDatabaseStore(String directory, boolean packed) {
+        this(directory, packed, true);
+    }
+    
+    /**
+     * Store with two tables of six edges.
+     * @param directory cache directory
+     * @param packed true to keep depths modulo 3 in two bits per entry
+     * @param symmetric true for the symmetry-reduced corner table
+     */
+    public PatternDatabaseStore(String directory, boolean packed, boolean symmetric) {
+        this(directory, packed, symmetric, parseEdges(DEFAULT_EDGES));
+    }
+    
+    /**
+     * @param directory cache directory
+     * @param packed true to keep depths modulo 3 in two bits per entry
+     * @param symmetric true for the symmetry-reduced corner table
+     * @param edges bitmasks of the edge cubies tracked by each edge table
+     */
+    public PatternDatabaseStore(String directory, boolean packed, boolean symmetric, int[] edges) {
+        this.directory = Paths.get(directory);
+        this.packed = packed;
+        this.symmetric = symmetric;
+        this.edges = edges.clone();
+        for (int subset : edges)
+            PatternDatabase.edges(subset);
+    }
+    
+    /**
+     * Loads the corner table and every edge table into IDAStar.
+     * @throws IOException if a generated table cannot be stored
+     */
+    public void loadAll() throws IOException {
+        PatternDatabase[] tables = new PatternDatabase[edges.length + 1];
+        tables[0] = load(symmetric ? PatternDatabase.SYM_CORNERS : PatternDatabase.CORNERS);
+        for (int i = 0; i < edges.length; i++)
+            tables[i + 1] = load(PatternDatabase.edges(edges[i]));
+        IDAStar.heuristic = new Heuristic(tables);
+    }
+    
+    /**
+     * Maps a table from the cache directory, generating and storing it first
+     * if it is missing, has a bad header or was built by another encoder
+     * version. Its checksum is only checked if the rubik.pdb.verify system
+     * property is true.
+     * @param kind table kind, see PatternDatabase
+     * @return heuristic table
+     * @throws IOException if a generated table cannot be stored
+     */
+    public PatternDatabase load(int kind) throws IOException {
+        
+        Path file = directory.resolve(name(kind) + (packed ? ".mod3.pdb" : ".pdb"));
+        
+        if (Files.exists(file)) {
+            try {
+                PatternDatabase table = PatternDatabase.map(file.toString(), kind, Boolean.getBoolean(VERIFY_PROPERTY));
+                if (table.isPacked() == packed)
+                    return table;
+                System.err.println("Unexpected heuristic table entry size: " + file + " - regenerating");
+            } catch (IOException e) {
+                System.err.println(e.getMessage() + " - regenerating");
+            }
+        }
+        
+        System.out.println("Generating heuristic table: " + file);
+        TableGenerator generator = new TableGenerator(kind);
+        generator.setListener(System.out::println);
+        PatternDatabase table = generator.generateByScan();
+        if (packed)
+            table = table.pack();
+        
+        //Write to a temporary file first, so other processes never map a
+        //partially written table
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, name(kind), ".tmp");
+        try {
+            table.write(temp.toString());
+            //The one full read of the checksum, while the file is still in the page cache
+            PatternDatabase.map(temp.toString(), kind, true);
+            //Temporary files are created owner only, but the tables are
+            //shared with workers and servers run as other users
+            try {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-r--r--"));
+            } catch (UnsupportedOperationException e) {
+                //Not a POSIX file system, the default permissions apply
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        
+        return PatternDatabase.map(file.toString(), kind);
+        
+    }
+    
+    /**
+     * @param kind table kind, see PatternDatabase
+     * @return file name of the table, without extension
+     */
+    private static String name(int kind) {
+        switch (kind) {
+            case PatternDatabase.CORNERS:
+                return "corners";
+            case PatternDatabase.SYM_CORNERS:
+                return "corners-sym";
+            case PatternDatabase.FIRST_EDGES:
+                return "edges1";
+            case PatternDatabase.SECOND_EDGES:
+                return "edges2";
+            default:
+                return String.format("edges-%03x", PatternDatabase.subset(kind));
+        }
+    }
+    
+    /**
+     * @param edges comma-separated hexadecimal bitmasks of edge cubies
+     * @return bitmasks
+     */
+    private static int[] parseEdges(String edges) {
+        String[] subsets = edges.split(",");
+        int[] parsed = new int[subsets.length];
+        for (int i = 0; i < subsets.length; i++)
+            parsed[i] = Integer.parseInt(subsets[i].trim(), 16);
+        return parsed;
+    }
+    
+}
@@ -14,7 +14,10 @@ import java.util.List;
 
 /**
  * @author Chris
+ * @deprecated The checks share one static list and cannot run concurrently,
+ * and edgeParityTest rejects many solvable states; use CubeValidator.
  */
+@Deprecated
 public class RubiksCube {
 
     private static final int RED = 1;
@@ -0,0 +1,406 @@
+package rubik;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Coordinator of an IDA* search spread over SearchWorker processes. Every
+ * iteration the coordinator walks the tree down to SPLIT_DEPTH itself and
+ * hands each subtree within the bound to the workers as a job. Each worker
+ * keeps one job in flight, so faster workers take more jobs. The next bound
+ * is the minimum over all job results, and once a worker reaches the goal
+ * every other worker is told to cancel its job.
+ */
+public class SearchCoordinator implements Closeable {
+    
+    /**
+     * Depth at which the tree is split into jobs, about 3000 of them.
+     */
+    public static final int SPLIT_DEPTH = 3;
+    
+    /**
+     * System property with the time allowed for a worker to start listening,
+     * in seconds. Workers started by main map the tables this process has
+     * already stored, but workers elsewhere may have to generate them first.
+     */
+    public static final String TIMEOUT_PROPERTY = "rubik.worker.timeout";
+    
+    public static final int DEFAULT_TIMEOUT = 30;
+    
+    private static final int MAX_PORT = 65535;
+    private static final String USAGE = "Usage: SearchCoordinator <cube file> <worker count | host:port ...>";
+    
+    private final Heuristic heuristic;
+    private final List<Connection> workers = new ArrayList<>();
+    private final ExecutorService dispatchers;
+    private int solves;
+    
+    /**
+     * Connects to the workers, waiting for those that are still starting.
+     * @param heuristic corner and edge heuristic
+     * @param addresses worker addresses
+     * @throws IOException if a worker cannot be reached
+     * @throws IllegalArgumentException if there are no addresses
+     */
+    public SearchCoordinator(Heuristic heuristic, List<InetSocketAddress> addresses) throws IOException {
+        if (addresses.isEmpty())
+            throw new IllegalArgumentException("At least one search worker address is required");
+        this.heuristic = heuristic;
+        this.dispatchers = Executors.newFixedThreadPool(addresses.size());
+        try {
+            for (InetSocketAddress address : addresses)
+                workers.add(new Connection(connect(address)));
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Finds an optimal solution for a cube state.
+     * @param state start state of the cube
+     * @return solution as face and turn digit pairs, as in IDAStar
+     * @throws IOException if a worker connection fails
+     * @throws IllegalArgumentException if there is no solution within
+     *         Searcher.MAX_DEPTH moves
+     */
+    public synchronized String solve(byte[] state) throws IOException {
+        
+        int id = ++solves;
+        for (Connection worker : workers)
+            worker.start(id, state);
+        
+        Searcher root = new Searcher(heuristic);
+        int bound = root.start(state);
+        
+        while (true) {
+            if (bound > Searcher.MAX_DEPTH)
+                throw new IllegalArgumentException("No solution within " + Searcher.MAX_DEPTH + " moves");
+            
+            ConcurrentLinkedQueue<byte[]> jobs = new ConcurrentLinkedQueue<>();
+            AtomicInteger next = new AtomicInteger(Integer.MAX_VALUE);
+            AtomicReference<String> solution = new AtomicReference<>();
+            
+            expand(root, new byte[SPLIT_DEPTH], 0, -1, bound, jobs, next, solution);
+            if (solution.get() != null)
+                return solution.get();
+            
+            List<Future<?>> results = new ArrayList<>();
+            for (Connection worker : workers) {
+                int b = bound;
+                results.add(dispatchers.submit(() -> {
+                    worker.dispatch(id, b, jobs, next, solution);
+                    return null;
+                }));
+            }
+            await(results);
+            
+            if (solution.get() != null)
+                return solution.get();
+            bound = next.get();
+        }
+        
+    }
+    
+    /**
+     * Walks the tree above SPLIT_DEPTH, queueing a job for every node at
+     * SPLIT_DEPTH whose path stays within the bound.
+     * @param root searcher used to evaluate the nodes
+     * @param prefix moves leading to the current node
+     * @param depth length of the prefix
+     * @param last face turned by the last move, or -1 at the start
+     * @param bound bound of the iteration
+     * @param jobs receives the prefixes of the jobs
+     * @param next minimum of the values exceeding the bound
+     * @param solution receives the solution if it is above SPLIT_DEPTH
+     */
+    private static void expand(Searcher root, byte[] prefix, int depth, int last, int bound,
+            ConcurrentLinkedQueue<byte[]> jobs, AtomicInteger next, AtomicReference<String> solution) {
+        
+        int h = root.restart(prefix, depth);
+        if (depth + h > bound) {
+            next.accumulateAndGet(depth + h, Math::min);
+            return;
+        }
+        if (h == 0 && root.isSolved()) {
+            solution.compareAndSet(null, root.solution());
+            return;
+        }
+        if (depth == SPLIT_DEPTH) {
+            jobs.add(prefix.clone());
+            return;
+        }
+        
+        for (int face = 0; face < 6 && solution.get() == null; face++) {
+            if (Cube.isRedundant(last, face))
+                continue;
+            for (int turns = 0; turns < 3; turns++) {
+                prefix[depth] = (byte)(face * 3 + turns);
+                expand(root, prefix, depth + 1, face, bound, jobs, next, solution);
+            }
+        }
+        
+    }
+    
+    /**
+     * Waits for every worker to finish the jobs of an iteration.
+     * @param results pending dispatch loops
+     * @throws IOException if a worker connection failed
+     */
+    private static void await(List<Future<?>> results) throws IOException {
+        try {
+            for (Future<?> result : results)
+                result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for search workers", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            throw new IllegalStateException("Search dispatch failed", e.getCause());
+        }
+    }
+    
+    /**
+     * Closes every worker connection.
+     */
+    @Override
+    public void close() {
+        dispatchers.shutdownNow();
+        for (Connection worker : workers) {
+            try {
+                worker.socket.close();
+            } catch (IOException e) {
+                //Closing anyway
+            }
+        }
+    }
+    
+    /**
+     * Connects to a worker, retrying while it is not listening yet.
+     * @param address worker address
+     * @return connected socket
+     * @throws IOException if the worker cannot be reached in time
+     */
+    private static Socket connect(InetSocketAddress address) throws IOException {
+        if (address.isUnresolved())
+            throw new UnknownHostException(address.getHostString());
+        long deadline = System.currentTimeMillis() + Integer.getInteger(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT) * 1000L;
+        while (true) {
+            try {
+                return new Socket(address.getAddress(), address.getPort());
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() > deadline)
+                    throw e;
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while connecting to " + address, ie);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Connection to one worker.
+     */
+    private class Connection {
+        
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            //Jobs and results are small messages that must not wait to be batched
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+        
+        /**
+         * Sends the start state of a solve.
+         */
+        void start(int id, byte[] state) throws IOException {
+            synchronized (out) {
+                out.writeByte(SearchWorker.SOLVE);
+                out.writeInt(id);
+                out.write(state);
+                out.flush();
+            }
+        }
+        
+        /**
+         * Sends jobs to the worker one at a time until the queue is empty or
+         * a solution has been found.
+         */
+        void dispatch(int id, int bound, ConcurrentLinkedQueue<byte[]> jobs, AtomicInteger next,
+                AtomicReference<String> solution) throws IOException {
+            
+            byte[] prefix;
+            while (solution.get() == null && (prefix = jobs.poll()) != null) {
+                synchronized (out) {
+                    out.writeByte(SearchWorker.JOB);
+                    out.writeInt(id);
+                    out.writeInt(bound);
+                    out.writeByte(prefix.length);
+                    out.write(prefix);
+                    out.flush();
+                }
+                
+                if (in.readByte() != SearchWorker.RESULT || in.readInt() != id)
+                    throw new IOException("Unexpected reply from search worker " + socket.getRemoteSocketAddress());
+                int result = in.readInt();
+                
+                if (result == Searcher.FOUND) {
+                    if (solution.compareAndSet(null, in.readUTF())) {
+                        for (Connection worker : workers)
+                            worker.cancel(id);
+                    }
+                } else {
+                    next.accumulateAndGet(result, Math::min);
+                }
+            }
+            
+        }
+        
+        /**
+         * Tells the worker to abandon its job.
+         */
+        void cancel(int id) throws IOException {
+            synchronized (out) {
+                out.writeByte(SearchWorker.CANCEL);
+                out.writeInt(id);
+                out.flush();
+            }
+        }
+        
+    }
+    
+    /**
+     * Solves a cube with a set of workers. With a worker count instead of
+     * addresses, that many workers are started on localhost from ports
+     * SearchWorker.DEFAULT_PORT upwards and stopped again afterwards.
+     * @param args cube file, then a worker count or host:port addresses
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            return;
+        }
+        
+        //Check the workers before spending time on loading the tables
+        boolean launch = args.length == 2 && !args[1].contains(":");
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        try {
+            if (launch) {
+                int count = parse(args[1], "worker count");
+                int limit = MAX_PORT - SearchWorker.DEFAULT_PORT + 1;
+                if (count < 1 || count > limit)
+                    throw new IllegalArgumentException("Worker count must be between 1 and " + limit + ": " + count);
+                for (int i = 0; i < count; i++)
+                    addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), SearchWorker.DEFAULT_PORT + i));
+            } else {
+                for (int i = 1; i < args.length; i++)
+                    addresses.add(address(args[i]));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return;
+        }
+        
+        new PatternDatabaseStore().loadAll();
+        Cube cube = new Cube(args[0]);
+        
+        List<Process> local = new ArrayList<>();
+        try {
+            if (launch)
+                for (InetSocketAddress address : addresses)
+                    local.add(launch(address.getPort()));
+            
+            try (SearchCoordinator coordinator = new SearchCoordinator(IDAStar.heuristic, addresses)) {
+                System.out.println(coordinator.solve(cube.cube));
+            }
+        } finally {
+            for (Process process : local)
+                process.destroy();
+        }
+        
+    }
+    
+    /**
+     * @param argument host:port command line argument
+     * @return worker address
+     * @throws IllegalArgumentException if the argument is not a host and a
+     * valid port
+     */
+    private static InetSocketAddress address(String argument) {
+        int colon = argument.lastIndexOf(':');
+        if (colon <= 0)
+            throw new IllegalArgumentException("Worker address must be host:port: " + argument);
+        int port = parse(argument.substring(colon + 1), "worker port");
+        if (port < 1 || port > MAX_PORT)
+            throw new IllegalArgumentException("Worker port must be between 1 and " + MAX_PORT + ": " + argument);
+        return new InetSocketAddress(argument.substring(0, colon), port);
+    }
+    
+    /**
+     * @param value command line value
+     * @param name description for the error message
+     * @return parsed value
+     * @throws IllegalArgumentException if the value is not a number
+     */
+    private static int parse(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+    
+    /**
+     * Starts a worker process on this machine with the same class path and
+     * table settings as this one.
+     * @param port port for the worker to listen on
+     * @return worker process
+     * @throws IOException
+     */
+    private static Process launch(int port) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "-D" + PatternDatabaseStore.DIRECTORY_PROPERTY + "="
+                        + System.getProperty(PatternDatabaseStore.DIRECTORY_PROPERTY, PatternDatabaseStore.DEFAULT_DIRECTORY),
+                "-D" + PatternDatabaseStore.PACKED_PROPERTY + "=" + Boolean.getBoolean(PatternDatabaseStore.PACKED_PROPERTY),
+                "-D" + PatternDatabaseStore.VERIFY_PROPERTY + "=" + Boolean.getBoolean(PatternDatabaseStore.VERIFY_PROPERTY),
+                "-D" + PatternDatabaseStore.SYMMETRY_PROPERTY + "="
+                        + System.getProperty(PatternDatabaseStore.SYMMETRY_PROPERTY, "true"),
+                "-D" + PatternDatabaseStore.EDGES_PROPERTY + "="
+                        + System.getProperty(PatternDatabaseStore.EDGES_PROPERTY, PatternDatabaseStore.DEFAULT_EDGES),
+                SearchWorker.class.getName(), Integer.toString(port))
+                .inheritIO().start();
+    }
+    
+}
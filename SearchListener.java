@@ -0,0 +1,25 @@
+package rubik;
+
+/**
+ * Receives the metrics of a search as it runs: once after every iteration of
+ * IDA*, that is every threshold, and once when the solve ends. Listeners are
+ * called on the thread running the solve, between iterations, so a slow
+ * listener delays the search.
+ */
+public interface SearchListener {
+    
+    /**
+     * Called after each iteration, including the one that finds the goal.
+     * @param metrics metrics of the iteration
+     */
+    default void iterationFinished(SearchMetrics metrics) {
+    }
+    
+    /**
+     * Called once the solve ends: solved, without a solution or cancelled.
+     * @param metrics metrics of the whole solve
+     */
+    default void solveFinished(SearchMetrics metrics) {
+    }
+    
+}
@@ -0,0 +1,183 @@
+package rubik;
+
+/**
+ * Metrics of one iteration of a search, or of a whole solve: the nodes
+ * visited, the time taken, the heuristic values of the nodes and the number
+ * of times each kind of pruning cut the tree.
+ *
+ * The effective branching factor of an iteration is the ratio of its nodes
+ * to those of the iteration before, which is how the tree grows with every
+ * step of the threshold. That of a solve is the number b with b^d equal to
+ * its nodes, d being the solution length.
+ */
+public final class SearchMetrics {
+    
+    /**
+     * Reasons a subtree is cut: the cost plus heuristic value exceeds the
+     * threshold, the cost plus dual heuristic value does although the
+     * primal value does not, the state was searched before in the iteration
+     * (see TranspositionTable), or a move is skipped as redundant (see
+     * Cube.isRedundant).
+     */
+    public static final int BOUND = 0;
+    public static final int DUAL = 1;
+    public static final int TRANSPOSITION = 2;
+    public static final int REDUNDANT = 3;
+    public static final int REASONS = 4;
+    
+    /**
+     * Number of heuristic values counted separately. Larger values are
+     * counted with the largest.
+     */
+    public static final int HISTOGRAM_SIZE = Searcher.MAX_DEPTH + 1;
+    
+    private static final String[] REASON_NAMES = {"bound", "dual", "transposition", "redundant"};
+    
+    private final int bound;
+    private final int iteration;
+    private final long nodes;
+    private final long elapsedNanos;
+    private final double branchingFactor;
+    private final long[] histogram;
+    private final long[] prunes;
+    private final boolean cancelled;
+    
+    /**
+     * @param bound threshold of the iteration, or solution length of the
+     *        solve (-1 if none was found)
+     * @param iteration number of the iteration from 1, or number of
+     *        iterations of the solve
+     * @param nodes number of nodes visited
+     * @param elapsedNanos time taken, in nanoseconds
+     * @param branchingFactor effective branching factor, or NaN if unknown
+     * @param histogram number of nodes by heuristic value, not copied
+     * @param prunes number of cuts by reason, not copied
+     * @param cancelled true if the search was stopped before it ended
+     */
+    SearchMetrics(int bound, int iteration, long nodes, long elapsedNanos, double branchingFactor,
+            long[] histogram, long[] prunes, boolean cancelled) {
+        this.bound = bound;
+        this.iteration = iteration;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.branchingFactor = branchingFactor;
+        this.histogram = histogram;
+        this.prunes = prunes;
+        this.cancelled = cancelled;
+    }
+    
+    /**
+     * @return threshold of the iteration, or solution length of the solve
+     *         (-1 if none was found)
+     */
+    public int bound() {
+        return bound;
+    }
+    
+    /**
+     * @return true if the search was stopped before the iteration or solve
+     *         ended, so its counts cover only part of it
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * @return number of the iteration from 1, or number of iterations of
+     *         the solve
+     */
+    public int iteration() {
+        return iteration;
+    }
+    
+    /**
+     * @return number of nodes visited
+     */
+    public long nodes() {
+        return nodes;
+    }
+    
+    /**
+     * @return time taken, in nanoseconds
+     */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    /**
+     * @return nodes visited per second
+     */
+    public double nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+    
+    /**
+     * @return effective branching factor, or NaN for the first iteration
+     *         and for a solve of no moves
+     */
+    public double branchingFactor() {
+        return branchingFactor;
+    }
+    
+    /**
+     * @param value heuristic value, in [0, HISTOGRAM_SIZE)
+     * @return number of nodes visited with that heuristic value, or with any
+     *         larger one for the last value
+     */
+    public long heuristicCount(int value) {
+        return histogram[value];
+    }
+    
+    /**
+     * @return number of nodes visited by heuristic value, see heuristicCount
+     */
+    public long[] histogram() {
+        return histogram.clone();
+    }
+    
+    /**
+     * @param reason BOUND, DUAL, TRANSPOSITION or REDUNDANT
+     * @return number of cuts for that reason
+     */
+    public long prunes(int reason) {
+        return prunes[reason];
+    }
+    
+    /**
+     * @param reason BOUND, DUAL, TRANSPOSITION or REDUNDANT
+     * @return name of the reason
+     */
+    public static String describe(int reason) {
+        return REASON_NAMES[reason];
+    }
+    
+    /**
+     * @return heuristic values with a nonzero count, as value:count pairs
+     */
+    String formatHistogram() {
+        StringBuilder text = new StringBuilder();
+        for (int value = 0; value < histogram.length; value++) {
+            if (histogram[value] == 0)
+                continue;
+            if (text.length() > 0)
+                text.append(' ');
+            text.append(value).append(':').append(histogram[value]);
+        }
+        return text.toString();
+    }
+    
+    /**
+     * @return one line summary, as logged
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("bound %d, iteration %d, %d nodes in %.3f ms, %.0f nodes/s, branching %.2f",
+                bound, iteration, nodes, elapsedNanos / 1e6, nodesPerSecond(), branchingFactor));
+        for (int reason = 0; reason < REASONS; reason++)
+            text.append(", ").append(prunes[reason]).append(' ').append(REASON_NAMES[reason]);
+        text.append(", h ").append(formatHistogram());
+        return cancelled ? text.append(", cancelled").toString() : text.toString();
+    }
+    
+}
@@ -0,0 +1,257 @@
+package rubik;
+
+import java.util.Arrays;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Turns the counts of a search into SearchMetrics at the end of every
+ * iteration and of the solve, and hands them to a SearchListener and to Java
+ * Flight Recorder as rubik.SearchIteration and rubik.Solve events. The
+ * searchers count nodes, heuristic values and cuts; timing, totals and
+ * branching factors are kept here, so a search with neither a listener nor a
+ * recording pays only for the counting. One monitor serves one solve at a
+ * time.
+ */
+class SearchMonitor {
+    
+    private final SearchListener listener;
+    private final long[] histogram = new long[SearchMetrics.HISTOGRAM_SIZE];
+    private final long[] prunes = new long[SearchMetrics.REASONS];
+    
+    private SolveEvent solveEvent;
+    private IterationEvent iterationEvent;
+    private long solveBegin;
+    private long iterationBegin;
+    private long nodes;
+    private long previousNodes;
+    private int iterations;
+    
+    /**
+     * @param listener listener of the searches, or null
+     */
+    SearchMonitor(SearchListener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * Starts the timing and totals of a solve.
+     */
+    void startSolve() {
+        solveEvent = new SolveEvent();
+        solveEvent.begin();
+        solveBegin = System.nanoTime();
+        Arrays.fill(histogram, 0);
+        Arrays.fill(prunes, 0);
+        nodes = 0;
+        previousNodes = 0;
+        iterations = 0;
+    }
+    
+    /**
+     * Starts the timing of an iteration.
+     */
+    void startIteration() {
+        iterationEvent = new IterationEvent();
+        iterationEvent.begin();
+        iterationBegin = System.nanoTime();
+    }
+    
+    /**
+     * Ends an iteration and reports its metrics.
+     * @param bound threshold of the iteration
+     * @param totalNodes nodes visited since the solve started
+     * @param iterationHistogram nodes of the iteration by heuristic value
+     * @param iterationPrunes cuts of the iteration by reason
+     * @param cancelled true if the search was stopped during the iteration
+     */
+    void finishIteration(int bound, long totalNodes, long[] iterationHistogram, long[] iterationPrunes,
+            boolean cancelled) {
+        
+        long elapsed = System.nanoTime() - iterationBegin;
+        iterationEvent.end();
+        long count = totalNodes - nodes;
+        double branching = previousNodes == 0 ? Double.NaN : (double)count / previousNodes;
+        nodes = totalNodes;
+        previousNodes = count;
+        iterations++;
+        add(histogram, iterationHistogram);
+        add(prunes, iterationPrunes);
+        
+        if (listener == null && !iterationEvent.shouldCommit())
+            return;
+        SearchMetrics metrics = new SearchMetrics(bound, iterations, count, elapsed, branching,
+                iterationHistogram.clone(), iterationPrunes.clone(), cancelled);
+        if (iterationEvent.shouldCommit()) {
+            iterationEvent.set(metrics);
+            iterationEvent.commit();
+        }
+        if (listener != null)
+            listener.iterationFinished(metrics);
+        
+    }
+    
+    /**
+     * Ends the solve and reports its metrics.
+     * @param length solution length, or -1 if no solution was found
+     * @param cancelled true if the search was stopped, false if it ended
+     */
+    void finishSolve(int length, boolean cancelled) {
+        
+        long elapsed = System.nanoTime() - solveBegin;
+        solveEvent.end();
+        if (listener == null && !solveEvent.shouldCommit())
+            return;
+        
+        double branching = length > 0 ? Math.pow(nodes, 1.0 / length) : Double.NaN;
+        SearchMetrics metrics = new SearchMetrics(length, iterations, nodes, elapsed, branching,
+                histogram.clone(), prunes.clone(), cancelled);
+        if (solveEvent.shouldCommit()) {
+            solveEvent.set(metrics);
+            solveEvent.commit();
+        }
+        if (listener != null)
+            listener.solveFinished(metrics);
+        
+    }
+    
+    /**
+     * Adds per-iteration counts of one searcher to a sum.
+     * @param sum counts summed so far
+     * @param counts counts of the searcher
+     */
+    static void add(long[] sum, long[] counts) {
+        for (int i = 0; i < sum.length; i++)
+            sum[i] += counts[i];
+    }
+    
+    /**
+     * Flight Recorder event of one IDA* iteration.
+     */
+    @Name("rubik.SearchIteration")
+    @Label("Search Iteration")
+    @Category({"Rubik", "Search"})
+    @Description("One iteration of IDA*, searching every path within a threshold")
+    static class IterationEvent extends Event {
+        
+        @Label("Threshold")
+        int bound;
+        
+        @Label("Iteration")
+        int iteration;
+        
+        @Label("Nodes")
+        long nodes;
+        
+        @Label("Nodes per Second")
+        @Frequency
+        double nodesPerSecond;
+        
+        @Label("Branching Factor")
+        @Description("Nodes of this iteration divided by nodes of the one before")
+        double branchingFactor;
+        
+        @Label("Bound Cuts")
+        long boundPrunes;
+        
+        @Label("Dual Cuts")
+        long dualPrunes;
+        
+        @Label("Transposition Cuts")
+        long transpositionPrunes;
+        
+        @Label("Redundant Moves")
+        long redundantPrunes;
+        
+        @Label("Heuristic Histogram")
+        @Description("Heuristic value and number of nodes, for every value seen")
+        String histogram;
+        
+        @Label("Cancelled")
+        @Description("Whether the search was stopped before the iteration ended")
+        boolean cancelled;
+        
+        void set(SearchMetrics metrics) {
+            bound = metrics.bound();
+            cancelled = metrics.isCancelled();
+            iteration = metrics.iteration();
+            nodes = metrics.nodes();
+            nodesPerSecond = metrics.nodesPerSecond();
+            branchingFactor = metrics.branchingFactor();
+            boundPrunes = metrics.prunes(SearchMetrics.BOUND);
+            dualPrunes = metrics.prunes(SearchMetrics.DUAL);
+            transpositionPrunes = metrics.prunes(SearchMetrics.TRANSPOSITION);
+            redundantPrunes = metrics.prunes(SearchMetrics.REDUNDANT);
+            histogram = metrics.formatHistogram();
+        }
+        
+    }
+    
+    /**
+     * Flight Recorder event of a whole solve.
+     */
+    @Name("rubik.Solve")
+    @Label("Solve")
+    @Category({"Rubik", "Search"})
+    @Description("Optimal solve of one cube, over all its iterations")
+    static class SolveEvent extends Event {
+        
+        @Label("Solution Length")
+        @Description("Moves in the solution, or -1 if none was found")
+        int length;
+        
+        @Label("Cancelled")
+        @Description("Whether the search was stopped before it ended")
+        boolean cancelled;
+        
+        @Label("Iterations")
+        int iterations;
+        
+        @Label("Nodes")
+        long nodes;
+        
+        @Label("Nodes per Second")
+        @Frequency
+        double nodesPerSecond;
+        
+        @Label("Branching Factor")
+        @Description("Solution length root of the nodes")
+        double branchingFactor;
+        
+        @Label("Bound Cuts")
+        long boundPrunes;
+        
+        @Label("Dual Cuts")
+        long dualPrunes;
+        
+        @Label("Transposition Cuts")
+        long transpositionPrunes;
+        
+        @Label("Redundant Moves")
+        long redundantPrunes;
+        
+        @Label("Heuristic Histogram")
+        @Description("Heuristic value and number of nodes, for every value seen")
+        String histogram;
+        
+        void set(SearchMetrics metrics) {
+            length = metrics.bound();
+            cancelled = metrics.isCancelled();
+            iterations = metrics.iteration();
+            nodes = metrics.nodes();
+            nodesPerSecond = metrics.nodesPerSecond();
+            branchingFactor = metrics.branchingFactor();
+            boundPrunes = metrics.prunes(SearchMetrics.BOUND);
+            dualPrunes = metrics.prunes(SearchMetrics.DUAL);
+            transpositionPrunes = metrics.prunes(SearchMetrics.TRANSPOSITION);
+            redundantPrunes = metrics.prunes(SearchMetrics.REDUNDANT);
+            histogram = metrics.formatHistogram();
+        }
+        
+    }
+    
+}
@@ -0,0 +1,222 @@
+package rubik;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Worker process of a distributed IDA* search. A worker maps the heuristic
+ * tables, listens on a port and searches the subtree jobs SearchCoordinator
+ * sends it, one at a time per connection. Workers listen on the loopback
+ * interface unless given another address, as the protocol has no
+ * authentication.
+ *
+ * Messages are written with DataOutputStream:
+ * SOLVE solve id (int), start state (54 bytes);
+ * JOB solve id (int), bound (int), prefix length (byte), prefix moves;
+ * CANCEL solve id (int);
+ * RESULT solve id (int), result (int) and the solution (UTF) if the result
+ * is FOUND. Only RESULT goes from worker to coordinator. A worker closes
+ * the connection on a malformed message or a failed job instead of
+ * answering, so the coordinator never waits on a result that will not come.
+ */
+public class SearchWorker {
+    
+    public static final int DEFAULT_PORT = 7130;
+    
+    static final byte SOLVE = 1;
+    static final byte JOB = 2;
+    static final byte CANCEL = 3;
+    static final byte RESULT = 4;
+    
+    private final Heuristic heuristic;
+    private final InetAddress address;
+    private final int port;
+    
+    /**
+     * @param heuristic corner and edge heuristic
+     * @param port port to listen on, on the loopback interface
+     */
+    public SearchWorker(Heuristic heuristic, int port) {
+        this(heuristic, InetAddress.getLoopbackAddress(), port);
+    }
+    
+    /**
+     * @param heuristic corner and edge heuristic
+     * @param address address to listen on
+     * @param port port to listen on
+     */
+    public SearchWorker(Heuristic heuristic, InetAddress address, int port) {
+        this.heuristic = heuristic;
+        this.address = address;
+        this.port = port;
+    }
+    
+    /**
+     * Accepts coordinator connections until the process ends. Each
+     * connection is served on its own thread.
+     * @throws IOException if the port cannot be opened
+     */
+    public void serve() throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 0, address)) {
+            System.out.println("Search worker listening on " + address.getHostAddress() + " port " + port);
+            while (true) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Thread thread = new Thread(() -> handle(socket), "search-worker-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+    
+    /**
+     * Reads the messages of one coordinator. Jobs run on a separate thread,
+     * so a CANCEL is read and acted on while a job is still searching.
+     * @param socket coordinator connection
+     */
+    private void handle(Socket socket) {
+        
+        ExecutorService jobs = Executors.newSingleThreadExecutor();
+        Session session = null;
+        
+        try (Socket s = socket;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            
+            while (true) {
+                byte op = in.readByte();
+                int id = in.readInt();
+                
+                switch (op) {
+                    case SOLVE:
+                        byte[] state = new byte[54];
+                        in.readFully(state);
+                        if (CubeValidator.validate(state) != CubeValidator.VALID)
+                            throw new IOException("Invalid start state");
+                        AtomicBoolean stop = new AtomicBoolean();
+                        Session next = new Session(id, stop, new Searcher(heuristic, stop));
+                        session = next;
+                        jobs.execute(() -> next.searcher.start(state));
+                        break;
+                    case JOB:
+                        int bound = in.readInt();
+                        int length = in.readByte();
+                        if (bound < 0 || bound > Searcher.MAX_DEPTH || length < 0 || length > bound)
+                            throw new IOException("Malformed job: bound " + bound + ", prefix length " + length);
+                        byte[] prefix = new byte[length];
+                        in.readFully(prefix);
+                        for (byte move : prefix) {
+                            if (move < 0 || move >= CubieCube.MOVES)
+                                throw new IOException("Malformed job: move " + move);
+                        }
+                        Session current = session;
+                        jobs.execute(() -> run(current, id, bound, prefix, out));
+                        break;
+                    case CANCEL:
+                        if (session != null && session.id == id)
+                            session.stop.set(true);
+                        break;
+                    default:
+                        throw new IOException("Unexpected message: " + op);
+                }
+            }
+            
+        } catch (EOFException e) {
+            //The coordinator closed the connection
+        } catch (IOException e) {
+            System.err.println("Search worker connection failed: " + e.getMessage());
+        } finally {
+            jobs.shutdownNow();
+        }
+        
+    }
+    
+    /**
+     * Searches one job and sends back its result. If the search fails the
+     * connection is closed instead.
+     * @param session solve the job belongs to
+     * @param id solve id of the job
+     * @param bound bound of the iteration
+     * @param prefix moves leading to the root of the subtree
+     * @param out coordinator connection
+     */
+    private static void run(Session session, int id, int bound, byte[] prefix, DataOutputStream out) {
+        
+        int result = Integer.MAX_VALUE;
+        String solution = null;
+        
+        try {
+            if (session != null && session.id == id && !session.stop.get()) {
+                Searcher searcher = session.searcher;
+                int h = searcher.restart(prefix, prefix.length);
+                int last = prefix.length == 0 ? -1 : prefix[prefix.length - 1] / 3;
+                result = searcher.search(prefix.length, h, bound, last);
+                if (result == Searcher.FOUND)
+                    solution = searcher.solution();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Search worker job failed: " + e);
+            try {
+                out.close();
+            } catch (IOException ce) {
+                //Closing anyway
+            }
+            return;
+        }
+        
+        try {
+            synchronized (out) {
+                out.writeByte(RESULT);
+                out.writeInt(id);
+                out.writeInt(result);
+                if (solution != null)
+                    out.writeUTF(solution);
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Search worker could not send a result: " + e.getMessage());
+        }
+        
+    }
+    
+    /**
+     * Searcher for the start state of one solve.
+     */
+    private static class Session {
+        
+        private final int id;
+        private final AtomicBoolean stop;
+        private final Searcher searcher;
+        
+        Session(int id, AtomicBoolean stop, Searcher searcher) {
+            this.id = id;
+            this.stop = stop;
+            this.searcher = searcher;
+        }
+        
+    }
+    
+    /**
+     * Loads the heuristic tables and serves coordinators.
+     * @param args port to listen on, DEFAULT_PORT if omitted, then the
+     * address to listen on, the loopback interface if omitted
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        InetAddress address = args.length > 1 ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+        new PatternDatabaseStore().loadAll();
+        new SearchWorker(IDAStar.heuristic, address, port).serve();
+    }
+    
+}
@@ -0,0 +1,466 @@
+package rubik;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Depth-first IDA* search that works on a single mutable cube. Moves are
+ * made and unmade in place on the cubie coordinates through the CubieCube
+ * transition tables, the path is kept on a fixed move stack and the table
+ * values of every depth in fixed arrays, so no objects are allocated per
+ * node. A searcher is reusable but not thread-safe: each thread needs its own.
+ *
+ * The heuristic may also look up the dual of a cube, its inverse, which is
+ * exactly as far from the goal: a solution of the cube read backwards with
+ * every move inverted solves the inverse. The larger of the primal and dual
+ * values prunes more without any more table memory. Dual values are read
+ * from the tables of exact depths only, as the inverse of a child is not one
+ * move away from the inverse of its parent and packed entries cannot be
+ * recovered from it.
+ *
+ * Every solve counts its nodes, their heuristic values and its cuts, which a
+ * SearchListener and Java Flight Recorder receive per iteration, see
+ * SearchMetrics.
+ */
+public class Searcher {
+    
+    /**
+     * Deepest search supported. Every position is solvable in 20 moves.
+     */
+    public static final int MAX_DEPTH = 24;
+    
+    /**
+     * Returned by search when the goal has been reached.
+     */
+    static final int FOUND = -1;
+    
+    /**
+     * Dual lookup policies: never, at every node, or only at nodes the primal
+     * value does not already prune.
+     */
+    public static final int NO_DUAL = 0;
+    public static final int DUAL = 1;
+    public static final int LAZY_DUAL = 2;
+    
+    /**
+     * System property selecting the default dual lookup policy: "none",
+     * "always" or "lazy", which is the default.
+     */
+    public static final String DUAL_PROPERTY = "rubik.search.dual";
+    
+    private final Heuristic heuristic;
+    private final AtomicBoolean stop;
+    private final int dual;
+    private final TranspositionTable transpositions;
+    private final int[] kinds;
+    private final long[] indices;
+    private final int[][] values;
+    private final byte[] moves = new byte[MAX_DEPTH];
+    private final byte[] edges = new byte[12];
+    private final byte[] startEdges = new byte[12];
+    private final byte[] corners = new byte[8];
+    private final byte[] startCorners = new byte[8];
+    private final byte[] inverseCorners = new byte[8];
+    private final byte[] inverseTwists = new byte[8];
+    private final byte[] inverseEdges = new byte[12];
+    private final long[] inverseIndices;
+    private final long[] histogram = new long[SearchMetrics.HISTOGRAM_SIZE];
+    private final long[] prunes = new long[SearchMetrics.REASONS];
+    private SearchMonitor monitor = new SearchMonitor(null);
+    
+    private int startPermutation;
+    private int startOrientation;
+    private int startHeuristic;
+    private int cornerPermutation;
+    private int cornerOrientation;
+    private int length;
+    private int stamp;
+    private long nodes;
+    
+    /**
+     * Searcher using the dual lookup policy of the rubik.search.dual system
+     * property.
+     * @param heuristic corner and edge heuristic
+     */
+    public Searcher(Heuristic heuristic) {
+        this(heuristic, new AtomicBoolean());
+    }
+    
+    /**
+     * @param heuristic corner and edge heuristic
+     * @param dual NO_DUAL, DUAL or LAZY_DUAL
+     */
+    public Searcher(Heuristic heuristic, int dual) {
+        this(heuristic, new AtomicBoolean(), dual);
+    }
+    
+    /**
+     * @param heuristic corner and edge heuristic
+     * @param dual NO_DUAL, DUAL or LAZY_DUAL
+     * @param transpositions table pruning states searched before in the same
+     *        iteration, or null to search without one
+     */
+    public Searcher(Heuristic heuristic, int dual, TranspositionTable transpositions) {
+        this(heuristic, new AtomicBoolean(), dual, transpositions);
+    }
+    
+    /**
+     * Searcher using the dual lookup policy of the rubik.search.dual system
+     * property.
+     * @param heuristic corner and edge heuristic
+     * @param stop flag that abandons the search once it is set
+     */
+    Searcher(Heuristic heuristic, AtomicBoolean stop) {
+        this(heuristic, stop, parseDual(System.getProperty(DUAL_PROPERTY, "lazy")));
+    }
+    
+    /**
+     * @param heuristic corner and edge heuristic
+     * @param stop flag that abandons the search once it is set
+     * @param dual NO_DUAL, DUAL or LAZY_DUAL
+     */
+    Searcher(Heuristic heuristic, AtomicBoolean stop, int dual) {
+        this(heuristic, stop, dual, null);
+    }
+    
+    /**
+     * @param heuristic corner and edge heuristic
+     * @param stop flag that abandons the search once it is set
+     * @param dual NO_DUAL, DUAL or LAZY_DUAL
+     * @param transpositions table pruning states searched before in the same
+     *        iteration, or null to search without one
+     */
+    Searcher(Heuristic heuristic, AtomicBoolean stop, int dual, TranspositionTable transpositions) {
+        if (dual < NO_DUAL || dual > LAZY_DUAL)
+            throw new IllegalArgumentException("Unknown dual lookup policy: " + dual);
+        this.heuristic = heuristic;
+        this.stop = stop;
+        this.dual = dual;
+        this.transpositions = transpositions;
+        this.inverseIndices = new long[heuristic.size()];
+        this.kinds = new int[heuristic.size()];
+        this.indices = new long[heuristic.size()];
+        this.values = new int[MAX_DEPTH + 1][heuristic.size()];
+        for (int i = 0; i < kinds.length; i++)
+            kinds[i] = heuristic.kind(i);
+    }
+    
+    /**
+     * Finds an optimal solution for a cube state.
+     * @param state start state of the cube
+     * @return solution as face and turn digit pairs, as in IDAStar
+     * @throws IllegalArgumentException if there is no solution within MAX_DEPTH moves
+     * @throws CancellationException if the stop flag is set before the
+     *         solution is found
+     */
+    public String solve(byte[] state) {
+        
+        monitor.startSolve();
+        int h = start(state);
+        int bound = h;
+        
+        while (true) {
+            if (transpositions != null)
+                stamp = transpositions.nextStamp();
+            monitor.startIteration();
+            clearCounts();
+            int next = search(0, h, bound, -1);
+            //A stopped search returns as if every path exceeded the bound
+            boolean cancelled = next != FOUND && stop.get();
+            monitor.finishIteration(bound, nodes, histogram, prunes, cancelled);
+            if (next == FOUND)
+                break;
+            if (cancelled) {
+                monitor.finishSolve(-1, true);
+                throw new CancellationException("Search stopped");
+            }
+            if (next > MAX_DEPTH) {
+                monitor.finishSolve(-1, false);
+                throw new IllegalArgumentException("No solution within " + MAX_DEPTH + " moves");
+            }
+            bound = next;
+        }
+        
+        monitor.finishSolve(length, false);
+        return solution();
+        
+    }
+    
+    /**
+     * Reports the metrics of every following solve, see SearchMetrics.
+     * @param listener listener of the solves, or null for none
+     */
+    public void setListener(SearchListener listener) {
+        this.monitor = new SearchMonitor(listener);
+    }
+    
+    /**
+     * Sets the start state of the following searches.
+     * @param state start state of the cube
+     * @return heuristic value of the start state
+     */
+    int start(byte[] state) {
+        
+        CubieCube cube = new CubieCube(state);
+        startPermutation = cube.cornerPermutation();
+        startOrientation = cube.cornerOrientation();
+        cube.getEdges(startEdges);
+        cube.getCorners(startCorners);
+        startHeuristic = heuristic.evaluate(state, values[0]);
+        nodes = 0;
+        return restart(new byte[0], 0);
+        
+    }
+    
+    /**
+     * Resets the cube to the start state followed by a sequence of moves,
+     * which become the beginning of the path (and the whole path, as far as
+     * solution is concerned, until search finds the goal).
+     * @param prefix moves, numbered as in CubieCube
+     * @param count number of moves used from prefix
+     * @return heuristic value of the resulting cube
+     */
+    int restart(byte[] prefix, int count) {
+        
+        cornerPermutation = startPermutation;
+        cornerOrientation = startOrientation;
+        System.arraycopy(startEdges, 0, edges, 0, edges.length);
+        System.arraycopy(startCorners, 0, corners, 0, corners.length);
+        
+        int h = startHeuristic;
+        for (int depth = 0; depth < count; depth++) {
+            int move = prefix[depth];
+            cornerPermutation = CubieCube.CORNER_PERMUTATION_MOVE[cornerPermutation][move];
+            cornerOrientation = CubieCube.CORNER_ORIENTATION_MOVE[cornerOrientation][move];
+            for (int i = 0; i < edges.length; i++)
+                edges[i] = CubieCube.EDGE_MOVE[edges[i]][move];
+            for (int i = 0; i < corners.length; i++)
+                corners[i] = CubieCube.CORNER_MOVE[corners[i]][move];
+            moves[depth] = (byte)move;
+            h = evaluate(depth + 1);
+        }
+        length = count;
+        return h;
+        
+    }
+    
+    /**
+     * @return dual lookup policy, NO_DUAL, DUAL or LAZY_DUAL
+     */
+    int dual() {
+        return dual;
+    }
+    
+    /**
+     * Sets the iteration the following searches record in the transposition
+     * table, for searchers sharing a table and its iterations.
+     * @param stamp stamp of the current iteration, see TranspositionTable
+     */
+    void setStamp(int stamp) {
+        this.stamp = stamp;
+    }
+    
+    /**
+     * @return moves of the last path that reached the goal, as face and turn
+     *         digit pairs
+     */
+    String solution() {
+        StringBuilder solution = new StringBuilder(length * 2);
+        for (int i = 0; i < length; i++)
+            solution.append(moves[i] / 3).append(moves[i] % 3 + 1);
+        return solution.toString();
+    }
+    
+    /**
+     * @return number of nodes visited by the last solve
+     */
+    public long nodes() {
+        return nodes;
+    }
+    
+    /**
+     * @return nodes visited since clearCounts, by heuristic value
+     */
+    long[] heuristicCounts() {
+        return histogram;
+    }
+    
+    /**
+     * @return cuts since clearCounts, by reason, see SearchMetrics
+     */
+    long[] pruneCounts() {
+        return prunes;
+    }
+    
+    /**
+     * Zeroes the heuristic value and cut counts, at the start of an iteration.
+     */
+    void clearCounts() {
+        Arrays.fill(histogram, 0);
+        Arrays.fill(prunes, 0);
+    }
+    
+    /**
+     * Searches below the current cube for the goal, within a bound on cost
+     * plus heuristic value.
+     * @param depth cost of the current path
+     * @param h heuristic value of the current cube, with its table values in values[depth]
+     * @param bound largest cost plus heuristic value searched
+     * @param last face turned by the last move, or -1 at the start
+     * @return FOUND, or the smallest cost plus heuristic value exceeding the
+     *         bound (Integer.MAX_VALUE once stopped)
+     */
+    int search(int depth, int h, int bound, int last) {
+        
+        nodes++;
+        histogram[Math.min(h, SearchMetrics.HISTOGRAM_SIZE - 1)]++;
+        int f = depth + h;
+        int dualF = dual == DUAL ? depth + evaluateInverse() : f;
+        if (f > bound) {
+            prunes[SearchMetrics.BOUND]++;
+            return Math.max(f, dualF);
+        }
+        if (dual == LAZY_DUAL)
+            dualF = depth + evaluateInverse();
+        if (dualF > bound) {
+            prunes[SearchMetrics.DUAL]++;
+            return dualF;
+        }
+        if (stop.get())
+            return Integer.MAX_VALUE;
+        
+        if (h == 0 && isSolved()) {
+            length = depth;
+            return FOUND;
+        }
+        //Tables that miss some edges can give 0 at MAX_DEPTH, but no child fits the depth arrays
+        if (depth == MAX_DEPTH)
+            return depth + 1;
+        //A transposition already searched contributes nothing new to the next bound
+        if (transpositions != null && transpositions.visit(hash(), stamp, depth)) {
+            prunes[SearchMetrics.TRANSPOSITION]++;
+            return Integer.MAX_VALUE;
+        }
+        
+        int permutation = cornerPermutation;
+        int orientation = cornerOrientation;
+        int min = Integer.MAX_VALUE;
+        
+        for (int face = 0; face < 6; face++) {
+            if (Cube.isRedundant(last, face)) {
+                prunes[SearchMetrics.REDUNDANT] += 3;
+                continue;
+            }
+            
+            for (int turns = 0; turns < 3; turns++) {
+                int move = face * 3 + turns;
+                
+                cornerPermutation = CubieCube.CORNER_PERMUTATION_MOVE[permutation][move];
+                cornerOrientation = CubieCube.CORNER_ORIENTATION_MOVE[orientation][move];
+                for (int i = 0; i < edges.length; i++)
+                    edges[i] = CubieCube.EDGE_MOVE[edges[i]][move];
+                if (dual != NO_DUAL) {
+                    for (int i = 0; i < corners.length; i++)
+                        corners[i] = CubieCube.CORNER_MOVE[corners[i]][move];
+                }
+                
+                int t = search(depth + 1, evaluate(depth + 1), bound, face);
+                
+                //Unmake the move with its inverse, the same face turned the other way
+                int inverse = face * 3 + 2 - turns;
+                cornerPermutation = permutation;
+                cornerOrientation = orientation;
+                for (int i = 0; i < edges.length; i++)
+                    edges[i] = CubieCube.EDGE_MOVE[edges[i]][inverse];
+                if (dual != NO_DUAL) {
+                    for (int i = 0; i < corners.length; i++)
+                        corners[i] = CubieCube.CORNER_MOVE[corners[i]][inverse];
+                }
+                
+                if (t == FOUND) {
+                    moves[depth] = (byte)move;
+                    return FOUND;
+                }
+                min = Math.min(min, t);
+            }
+        }
+        return min;
+        
+    }
+    
+    /**
+     * Looks up the current cube in every table.
+     * @param depth depth of the current cube, whose table values are stored
+     * @return heuristic value
+     */
+    private int evaluate(int depth) {
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = PatternDatabase.rank(kinds[i], cornerPermutation, cornerOrientation, edges);
+        return heuristic.evaluate(indices, values[depth - 1], values[depth]);
+    }
+    
+    /**
+     * Looks up the inverse of the current cube in the tables of exact depths.
+     * The cubie at a position of the cube is the position of that cubie in
+     * the inverse, with the twist or flip undone.
+     * @return dual heuristic value
+     */
+    private int evaluateInverse() {
+        for (int i = 0; i < corners.length; i++) {
+            inverseCorners[i] = (byte)(corners[i] / 3);
+            inverseTwists[i] = (byte)((3 - corners[i] % 3) % 3);
+        }
+        for (int i = 0; i < edges.length; i++)
+            inverseEdges[edges[i] >>> 1] = (byte)(i << 1 | edges[i] & 1);
+        
+        int permutation = CubieCube.cornerPermutation(inverseCorners);
+        int orientation = CubieCube.cornerOrientation(inverseTwists);
+        for (int i = 0; i < inverseIndices.length; i++)
+            inverseIndices[i] = PatternDatabase.rank(kinds[i], permutation, orientation, inverseEdges);
+        return heuristic.lowerBound(inverseIndices);
+    }
+    
+    /**
+     * @return hash of the current cube, from its corner coordinates and the
+     *         position and flip of every edge
+     */
+    private long hash() {
+        long key = 0;
+        for (int i = 0; i < edges.length; i++)
+            key = key << 5 | edges[i];
+        return TranspositionTable.mix(key * 0x9e3779b97f4a7c15L
+                + cornerPermutation * CubieCube.CORNER_ORIENTATIONS + cornerOrientation);
+    }
+    
+    /**
+     * @param policy "none", "always" or "lazy"
+     * @return NO_DUAL, DUAL or LAZY_DUAL
+     */
+    private static int parseDual(String policy) {
+        switch (policy) {
+            case "none":
+                return NO_DUAL;
+            case "always":
+                return DUAL;
+            case "lazy":
+                return LAZY_DUAL;
+            default:
+                throw new IllegalArgumentException("Unknown dual lookup policy: " + policy);
+        }
+    }
+    
+    /**
+     * @return true if the current cube is solved
+     */
+    boolean isSolved() {
+        if (cornerPermutation != 0 || cornerOrientation != 0)
+            return false;
+        for (int i = 0; i < edges.length; i++) {
+            if (edges[i] != i * 2)
+                return false;
+        }
+        return true;
+    }
+    
+}
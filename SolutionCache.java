@@ -0,0 +1,360 @@
+package rubik;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cache of optimal solutions in front of a solver. A state is stored under
+ * its canonical form, the smallest of its conjugates by the 48 symmetries
+ * and optionally those of its inverse, so a solution found for one state
+ * also answers every state equivalent to it. Equivalent states are the same
+ * distance from the goal, so a cached optimal solution maps back to an
+ * optimal solution: conjugated move by move, and reversed and inverted if
+ * the canonical form came from the inverse. Canonical forms are held as
+ * StateKeys.
+ *
+ * The least recently used entry is evicted once the cache is full. Entries
+ * can be kept in a file between runs, one per line as the canonical state,
+ * written as in Cube.parse, a tab and the solution.
+ */
+public class SolutionCache {
+    
+    /**
+     * System property giving the number of cached solutions.
+     */
+    public static final String SIZE_PROPERTY = "rubik.cache.size";
+    public static final int DEFAULT_SIZE = 100000;
+    
+    /**
+     * System property naming the file the cache is kept in between runs.
+     */
+    public static final String FILE_PROPERTY = "rubik.cache.file";
+    
+    /**
+     * System property selecting canonical forms over the inverse as well,
+     * used unless it is false.
+     */
+    public static final String INVERSION_PROPERTY = "rubik.cache.inversion";
+    
+    private static final String COLORS = "RGYBOW";
+    
+    private final int capacity;
+    private final boolean inversion;
+    private final Path file;
+    private final Map<StateKey, String> entries;
+    private long hits;
+    private long misses;
+    
+    /**
+     * Uses the size given by the rubik.cache.size system property, or
+     * DEFAULT_SIZE if it is not set, the file named by the rubik.cache.file
+     * system property, if any, and the inverse unless the
+     * rubik.cache.inversion system property is false.
+     */
+    public SolutionCache() {
+        this(Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE),
+                Boolean.parseBoolean(System.getProperty(INVERSION_PROPERTY, "true")),
+                System.getProperty(FILE_PROPERTY) == null ? null : Paths.get(System.getProperty(FILE_PROPERTY)));
+    }
+    
+    /**
+     * @param capacity largest number of cached solutions
+     * @param inversion true to canonicalize over the inverse as well
+     * @param file file the cache is kept in by load and save, or null
+     */
+    public SolutionCache(int capacity, boolean inversion, Path file) {
+        this.capacity = capacity;
+        this.inversion = inversion;
+        this.file = file;
+        this.entries = new LinkedHashMap<StateKey, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StateKey, String> eldest) {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+    }
+    
+    /**
+     * Looks up a state, or solves it and caches the solution on a miss.
+     * @param state cube state
+     * @param solver finds an optimal solution, as face and turn digit pairs
+     * @return optimal solution of the state
+     */
+    public String solve(byte[] state, Function<byte[], String> solver) {
+        Canonical canonical = canonicalize(state);
+        String solution = lookup(canonical);
+        if (solution == null) {
+            solution = solver.apply(state);
+            store(canonical, solution);
+        }
+        return solution;
+    }
+    
+    /**
+     * @param state cube state
+     * @return cached optimal solution of the state, or null on a miss
+     */
+    public String get(byte[] state) {
+        return lookup(canonicalize(state));
+    }
+    
+    /**
+     * Caches an optimal solution.
+     * @param state cube state
+     * @param solution optimal solution of the state
+     */
+    public void put(byte[] state, String solution) {
+        store(canonicalize(state), solution);
+    }
+    
+    /**
+     * @return number of cached solutions
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+    
+    /**
+     * @return number of lookups not answered from the cache
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+    
+    /**
+     * Reads the entries of the cache file, if there is one.
+     * @throws IOException if the file cannot be read, or holds an entry whose
+     * state is not a valid cube or whose solution is not a move sequence
+     */
+    public void load() throws IOException {
+        
+        if (file == null || !Files.exists(file))
+            return;
+        
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab < 0 || !isMoves(line.substring(tab + 1)))
+                    throw new IOException("Malformed solution cache entry: " + line);
+                byte[] state;
+                try {
+                    state = Cube.parse(line.substring(0, tab));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Malformed solution cache entry: " + line, e);
+                }
+                if (CubeValidator.validate(state) != CubeValidator.VALID)
+                    throw new IOException("Malformed solution cache entry: " + line);
+                synchronized (this) {
+                    entries.put(StateKey.of(state), line.substring(tab + 1));
+                }
+            }
+        }
+        
+    }
+    
+    /**
+     * Writes every entry to the cache file, if there is one, least recently
+     * used first so that loading it again keeps the order of use.
+     * @throws IOException if the file cannot be written
+     */
+    public void save() throws IOException {
+        
+        if (file == null)
+            return;
+        
+        List<Map.Entry<StateKey, String>> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+        
+        //Write to a temporary file first, so a failed write keeps the old cache
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.US_ASCII)) {
+                for (Map.Entry<StateKey, String> entry : snapshot) {
+                    writer.write(format(entry.getKey().toFacelets()) + "\t" + entry.getValue());
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        
+    }
+    
+    /**
+     * @param canonical canonical form of a state
+     * @return solution of the state, or null on a miss
+     */
+    private String lookup(Canonical canonical) {
+        
+        String solution;
+        synchronized (this) {
+            solution = entries.get(canonical.key);
+            if (solution == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        
+        solution = conjugate(solution, Symmetry.inverse(canonical.symmetry));
+        return canonical.inverted ? invert(solution) : solution;
+        
+    }
+    
+    /**
+     * @param canonical canonical form of a state
+     * @param solution solution of the state
+     */
+    private void store(Canonical canonical, String solution) {
+        if (canonical.inverted)
+            solution = invert(solution);
+        solution = conjugate(solution, canonical.symmetry);
+        synchronized (this) {
+            entries.put(canonical.key, solution);
+        }
+    }
+    
+    /**
+     * Finds the smallest conjugate of a state, and of its inverse if enabled,
+     * comparing facelets in order.
+     * @param state cube state
+     * @return canonical form
+     */
+    private Canonical canonicalize(byte[] state) {
+        
+        byte[] best = null;
+        int symmetry = 0;
+        boolean inverted = false;
+        
+        byte[][] sources = inversion
+                ? new byte[][] {state, new CubieCube(state).inverse().toFacelets()}
+                : new byte[][] {state};
+        for (int source = 0; source < sources.length; source++) {
+            for (int s = 0; s < Symmetry.FULL_COUNT; s++) {
+                byte[] conjugate = Symmetry.conjugate(sources[source], s);
+                if (best == null || compare(conjugate, best) < 0) {
+                    best = conjugate;
+                    symmetry = s;
+                    inverted = source == 1;
+                }
+            }
+        }
+        
+        return new Canonical(StateKey.of(best), symmetry, inverted);
+        
+    }
+    
+    /**
+     * @param state cube state
+     * @return colors of the facelets, as read by Cube.parse
+     */
+    private static String format(byte[] state) {
+        char[] facelets = new char[state.length];
+        for (int i = 0; i < state.length; i++)
+            facelets[i] = COLORS.charAt(state[i]);
+        return new String(facelets);
+    }
+    
+    /**
+     * @param solution text read as a solution
+     * @return true if it is face and turn digit pairs, faces 0 to 5 and turns
+     *         1 to 3
+     */
+    private static boolean isMoves(String solution) {
+        if (solution.length() % 2 != 0)
+            return false;
+        for (int i = 0; i < solution.length(); i += 2) {
+            char face = solution.charAt(i);
+            char turns = solution.charAt(i + 1);
+            if (face < '0' || face > '5' || turns < '1' || turns > '3')
+                return false;
+        }
+        return true;
+    }
+    
+    /**
+     * @return negative, zero or positive as the first state is smaller than,
+     *         equal to or greater than the second, facelet by facelet
+     */
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i])
+                return a[i] - b[i];
+        }
+        return 0;
+    }
+    
+    /**
+     * @param solution face and turn digit pairs
+     * @param symmetry symmetry number, see Symmetry
+     * @return solution with every move conjugated by the symmetry
+     */
+    private static String conjugate(String solution, int symmetry) {
+        StringBuilder conjugate = new StringBuilder(solution.length());
+        for (int i = 0; i < solution.length(); i += 2) {
+            int move = (solution.charAt(i) - '0') * 3 + solution.charAt(i + 1) - '1';
+            move = Symmetry.conjugateMove(move, symmetry);
+            conjugate.append(move / 3).append(move % 3 + 1);
+        }
+        return conjugate.toString();
+    }
+    
+    /**
+     * Turns a solution of a state into a solution of its inverse: the moves
+     * in reverse order, each turned the other way.
+     * @param solution face and turn digit pairs
+     * @return inverted solution
+     */
+    private static String invert(String solution) {
+        StringBuilder inverse = new StringBuilder(solution.length());
+        for (int i = solution.length() - 2; i >= 0; i -= 2)
+            inverse.append(solution.charAt(i)).append(4 - (solution.charAt(i + 1) - '0'));
+        return inverse.toString();
+    }
+    
+    /**
+     * Canonical form of a state: the key it is cached under, the symmetry
+     * that conjugates the state (or its inverse) to the key and whether the
+     * inverse was used.
+     */
+    private static class Canonical {
+        
+        private final StateKey key;
+        private final int symmetry;
+        private final boolean inverted;
+        
+        Canonical(StateKey key, int symmetry, boolean inverted) {
+            this.key = key;
+            this.symmetry = symmetry;
+            this.inverted = inverted;
+        }
+        
+    }
+    
+}
@@ -14,12 +14,10 @@ public class Solve {
     public static void main(String[] args) throws IOException {
         
         if (args.length > 0) {
-            KorfAlgorithm.cornerHeuristic();
-            KorfAlgorithm.edgeFirstHeuristic();
-            KorfAlgorithm.edgeSecondHeuristic();
+            new PatternDatabaseStore().loadAll();
             String file = args[0];
             Cube cube = new Cube(file);
-            IDAStar.initialize(cube.cube);
+            System.out.println(new ParallelSearcher(IDAStar.heuristic).solve(cube.cube));
         }
         
 //        KorfAlgorithm.cornerHeuristic();
@@ -0,0 +1,317 @@
+package rubik;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Long-running solver service that keeps the heuristic tables resident. It
+ * listens for HTTP requests on the loopback interface only:
+ *
+ * POST /solve with a cube as in Cube.parse answers the solution as face and
+ * turn digit pairs. A timeout query parameter (milliseconds) overrides the
+ * default timeout of the request.
+ * POST /validate with a cube answers true, or false and the check that
+ * failed, see CubeValidator.
+ * Cubes are validated on arrival, so an unsolvable cube is rejected with 400
+ * before it takes a place in the queue.
+ *
+ * Requests are read, parsed and validated on a small pool of reader threads,
+ * so a slow or stalled client holds up one reader, only until its timeout,
+ * and never the thread that accepts connections. They are then solved on a fixed pool of threads
+ * behind a bounded admission queue. A request arriving while the queue is
+ * full is answered with 503 instead of waiting, and a request not solved
+ * within its timeout, counted from its arrival, is abandoned and answered
+ * with 504. Solutions may be
+ * answered from a SolutionCache, which is saved when the process exits.
+ */
+public class SolveServer implements Closeable {
+    
+    public static final int DEFAULT_PORT = 7131;
+    public static final int DEFAULT_QUEUE = 64;
+    public static final long DEFAULT_TIMEOUT = 10000;
+    
+    /**
+     * Number of requests read at once.
+     */
+    public static final int READERS = 8;
+    
+    private final Heuristic heuristic;
+    private final long timeout;
+    private final SolutionCache cache;
+    private final HttpServer server;
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService readers;
+    private final ScheduledExecutorService timer;
+    
+    /**
+     * @param heuristic corner and edge heuristic
+     * @param port port to listen on, or 0 for any free port
+     * @param threads number of requests solved at once
+     * @param queue number of admitted requests waiting for a thread
+     * @param timeout default time allowed per request, in milliseconds
+     * @throws IOException if the port cannot be opened
+     */
+    public SolveServer(Heuristic heuristic, int port, int threads, int queue, long timeout)
+            throws IOException {
+        this(heuristic, port, threads, queue, timeout, null);
+    }
+    
+    /**
+     * @param heuristic corner and edge heuristic
+     * @param port port to listen on, or 0 for any free port
+     * @param threads number of requests solved at once
+     * @param queue number of admitted requests waiting for a thread
+     * @param timeout default time allowed per request, in milliseconds
+     * @param cache cache consulted before solving, or null
+     * @throws IOException if the port cannot be opened
+     */
+    public SolveServer(Heuristic heuristic, int port, int threads, int queue, long timeout,
+            SolutionCache cache) throws IOException {
+        this.heuristic = heuristic;
+        this.timeout = timeout;
+        this.cache = cache;
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), new ThreadPoolExecutor.AbortPolicy());
+        this.timer = Executors.newSingleThreadScheduledExecutor();
+        this.readers = Executors.newFixedThreadPool(READERS);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(readers);
+        server.createContext("/solve", exchange -> admit(exchange, true));
+        server.createContext("/validate", exchange -> admit(exchange, false));
+    }
+    
+    /**
+     * Starts answering requests.
+     */
+    public void start() {
+        server.start();
+    }
+    
+    /**
+     * @return port the server listens on
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+    
+    /**
+     * Stops listening, abandons every request in progress and releases the
+     * threads.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        readers.shutdownNow();
+        pool.shutdownNow();
+        timer.shutdownNow();
+    }
+    
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        int queue = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_QUEUE;
+        long timeout = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_TIMEOUT;
+        
+        new PatternDatabaseStore().loadAll();
+        SolutionCache cache = new SolutionCache();
+        cache.load();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                cache.save();
+            } catch (IOException e) {
+                System.err.println("Solution cache not saved: " + e.getMessage());
+            }
+        }));
+        
+        SolveServer server = new SolveServer(IDAStar.heuristic, port, threads, queue, timeout, cache);
+        server.start();
+        System.out.println("Solve server listening on port " + server.port());
+    }
+    
+    /**
+     * Reads a request on a reader thread and hands it to the pool, or
+     * rejects it if the admission queue is full.
+     * @param exchange HTTP request
+     * @param solve true to solve the cube, false to validate it
+     */
+    private void admit(HttpExchange exchange, boolean solve) {
+        
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicBoolean reading = new AtomicBoolean(true);
+        ScheduledFuture<?> deadline = null;
+        boolean admitted = false;
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, "Use POST");
+                return;
+            }
+            
+            //The timeout runs from the arrival of the request, so it covers reading the body.
+            //Closing the exchange before the response has started drops the connection,
+            //which ends a read blocked on a stalled client.
+            long limit;
+            try {
+                limit = timeout(exchange.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, e.getMessage());
+                return;
+            }
+            deadline = timer.schedule(() -> {
+                stop.set(true);
+                if (reading.compareAndSet(true, false))
+                    exchange.close();
+            }, limit, TimeUnit.MILLISECONDS);
+            
+            String body = read(exchange.getRequestBody());
+            if (!reading.compareAndSet(true, false))
+                return;
+            if (body == null) {
+                respond(exchange, 400, "Request too large");
+                return;
+            }
+            
+            byte[] state;
+            try {
+                state = Cube.parse(body);
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, e.getMessage());
+                return;
+            }
+            
+            int result = CubeValidator.validate(state);
+            if (!solve) {
+                respond(exchange, 200, result == CubeValidator.VALID ? "true"
+                        : "false: " + CubeValidator.describe(result));
+                return;
+            }
+            if (result != CubeValidator.VALID) {
+                respond(exchange, 400, "Invalid cube state: " + CubeValidator.describe(result));
+                return;
+            }
+            
+            if (stop.get()) {
+                respond(exchange, 504, "Timed out");
+                return;
+            }
+            
+            ScheduledFuture<?> pending = deadline;
+            try {
+                pool.execute(() -> handle(exchange, state, stop, pending));
+                admitted = true;
+            } catch (RejectedExecutionException e) {
+                respond(exchange, 503, "Too many requests");
+            }
+        } catch (IOException e) {
+            exchange.close();
+        } finally {
+            //Once admitted, the deadline is cancelled by handle
+            if (deadline != null && !admitted)
+                deadline.cancel(false);
+        }
+        
+    }
+    
+    /**
+     * Solves an admitted request on a pool thread.
+     * @param exchange HTTP request
+     * @param state cube state
+     * @param stop set once the request times out
+     * @param deadline pending timeout of the request
+     */
+    private void handle(HttpExchange exchange, byte[] state, AtomicBoolean stop,
+            ScheduledFuture<?> deadline) {
+        
+        try {
+            if (stop.get())
+                respond(exchange, 504, "Timed out");
+            else {
+                try {
+                    Searcher searcher = new Searcher(heuristic, stop);
+                    respond(exchange, 200, cache == null ? searcher.solve(state)
+                            : cache.solve(state, searcher::solve));
+                } catch (CancellationException e) {
+                    respond(exchange, 504, "Timed out");
+                } catch (RuntimeException e) {
+                    respond(exchange, 500, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            exchange.close();
+        } finally {
+            deadline.cancel(false);
+        }
+        
+    }
+    
+    /**
+     * @param query raw query string of the request, or null
+     * @return timeout of the request, in milliseconds
+     */
+    private long timeout(String query) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("timeout=")) {
+                    long limit = Long.parseLong(parameter.substring("timeout=".length()));
+                    if (limit <= 0)
+                        throw new IllegalArgumentException("Timeout must be positive");
+                    return limit;
+                }
+            }
+        }
+        return timeout;
+    }
+    
+    /**
+     * @param in request body
+     * @return body as text, or null if it is too long to be a cube
+     * @throws IOException
+     */
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            body.write(buffer, 0, n);
+            //A cube is 54 letters, so anything much longer is not one
+            if (body.size() > 4096)
+                return null;
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Sends a plain text response and ends the exchange.
+     * @param exchange HTTP request
+     * @param status HTTP status code
+     * @param body response text, without the line break
+     * @throws IOException
+     */
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = (body + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+}
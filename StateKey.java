@@ -0,0 +1,125 @@
+package rubik;
+
+/**
+ * Compact, immutable key of a cube state: the cubie and twist at every
+ * corner position packed into one long, and the cubie and flip at every
+ * edge position into another. Two keys are equal exactly when their states
+ * are, so equality is two compares instead of 54, and the hash mixes both
+ * longs instead of hashing every facelet.
+ */
+public final class StateKey {
+    
+    /**
+     * Key of the solved cube.
+     */
+    public static final StateKey GOAL = new StateKey(new CubieCube());
+    
+    private final long corners;
+    private final long edges;
+    
+    /**
+     * @param cube cube to take the key of
+     */
+    public StateKey(CubieCube cube) {
+        long c = 0;
+        for (int i = 0; i < cube.cp.length; i++)
+            c = c << 5 | cube.cp[i] << 2 | cube.co[i];
+        long e = 0;
+        for (int i = 0; i < cube.ep.length; i++)
+            e = e << 5 | cube.ep[i] << 1 | cube.eo[i];
+        this.corners = c;
+        this.edges = e;
+    }
+    
+    /**
+     * @param corners packed corners, see corners()
+     * @param edges packed edges, see edges()
+     */
+    public StateKey(long corners, long edges) {
+        this.corners = corners;
+        this.edges = edges;
+    }
+    
+    /**
+     * @param state facelet state of the cube, as in Cube.cube
+     * @return key of the state
+     */
+    public static StateKey of(byte[] state) {
+        return new StateKey(new CubieCube(state));
+    }
+    
+    /**
+     * @return cubie (three bits) and twist (two bits) of each corner
+     *         position, the first position in the highest bits
+     */
+    public long corners() {
+        return corners;
+    }
+    
+    /**
+     * @return cubie (four bits) and flip (one bit) of each edge position,
+     *         the first position in the highest bits
+     */
+    public long edges() {
+        return edges;
+    }
+    
+    /**
+     * @return true if this is the key of the solved cube
+     */
+    public boolean isGoal() {
+        return corners == GOAL.corners && edges == GOAL.edges;
+    }
+    
+    /**
+     * @return cubie representation of the state
+     */
+    public CubieCube toCubieCube() {
+        CubieCube cube = new CubieCube();
+        long c = corners;
+        for (int i = cube.cp.length - 1; i >= 0; i--, c >>>= 5) {
+            cube.cp[i] = (byte)(c >>> 2 & 7);
+            cube.co[i] = (byte)(c & 3);
+        }
+        long e = edges;
+        for (int i = cube.ep.length - 1; i >= 0; i--, e >>>= 5) {
+            cube.ep[i] = (byte)(e >>> 1 & 15);
+            cube.eo[i] = (byte)(e & 1);
+        }
+        return cube;
+    }
+    
+    /**
+     * @return facelet state of the cube, as in Cube.cube
+     */
+    public byte[] toFacelets() {
+        return toCubieCube().toFacelets();
+    }
+    
+    /**
+     * @return 64-bit hash of the state, for tables indexed by hash bits
+     */
+    public long hash() {
+        return TranspositionTable.mix(corners * 0x9e3779b97f4a7c15L ^ edges);
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof StateKey))
+            return false;
+        StateKey key = (StateKey)other;
+        return corners == key.corners && edges == key.edges;
+    }
+    
+    @Override
+    public int hashCode() {
+        long hash = hash();
+        return (int)(hash ^ hash >>> 32);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%010x:%015x", corners, edges);
+    }
+    
+}
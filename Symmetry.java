@@ -0,0 +1,329 @@
+package rubik;
+
+import java.util.Arrays;
+
+/**
+ * The 16 symmetries of the cube that keep the up/down axis in place: the
+ * four quarter rotations about that axis, each optionally turned upside down
+ * about the front/back axis and optionally mirrored left to right. Followed
+ * by a rotation about the diagonal through two opposite corners, which
+ * carries the up/down axis onto one of the others, they make up all 48
+ * symmetries of the cube.
+ *
+ * Conjugating a state by a symmetry S gives the state seen through S, where
+ * facelet i moves to S(i) and every color c becomes the color of the face S
+ * moves face c to. Every symmetry maps the face turns onto face turns, so a
+ * state and its conjugates are the same distance from the goal. The
+ * symmetry-reduced corner table is indexed by the class of conjugate corner
+ * permutations and the orientation conjugated to match, which makes it about
+ * 15 times smaller than the full corner table. Orientations of symmetric
+ * permutations that no state ranks to are left unused.
+ */
+public class Symmetry {
+    
+    public static final int COUNT = 16;
+    
+    /**
+     * Number of all symmetries, the first COUNT of which keep the up/down
+     * axis in place.
+     */
+    public static final int FULL_COUNT = 48;
+    
+    /**
+     * Center facelet of each face, indexed by face.
+     */
+    private static final byte[] CENTERS = {4, 19, 22, 25, 40, 49};
+    
+    /**
+     * Facelet each facelet is moved to by each symmetry.
+     */
+    private static final byte[][] FACELETS = new byte[FULL_COUNT][54];
+    
+    /**
+     * Color each color becomes under each symmetry.
+     */
+    private static final byte[][] COLORS = new byte[FULL_COUNT][6];
+    
+    /**
+     * Move each move becomes under each symmetry, numbered as in CubieCube.
+     * Mirrors turn the other way.
+     */
+    private static final byte[][] MOVES = new byte[FULL_COUNT][CubieCube.MOVES];
+    
+    /**
+     * Symmetry undoing each symmetry.
+     */
+    private static final byte[] INVERSE = new byte[FULL_COUNT];
+    
+    /**
+     * Class of each corner permutation, and a bitmask of the symmetries that
+     * conjugate the permutation to the representative of its class. More
+     * than one symmetry does so for permutations that are symmetric
+     * themselves.
+     */
+    private static final char[] CORNER_CLASS = new char[CubieCube.CORNER_PERMUTATIONS];
+    private static final char[] CORNER_SYMMETRIES = new char[CubieCube.CORNER_PERMUTATIONS];
+    
+    /**
+     * Representative corner permutation of each class, the smallest in it.
+     */
+    private static final char[] CORNER_REPRESENTATIVE;
+    
+    /**
+     * Corner orientation conjugated by each symmetry.
+     */
+    private static final char[][] ORIENTATION_CONJUGATE =
+            new char[CubieCube.CORNER_ORIENTATIONS][COUNT];
+    
+    /**
+     * Number of classes of conjugate corner permutations.
+     */
+    public static final int CORNER_CLASSES;
+    
+    /**
+     * Number of entries in the symmetry-reduced corner table.
+     */
+    public static final int MAX_CORNER_STATES;
+    
+    /**
+     * Number of entries of the symmetry-reduced corner table that a state
+     * ranks to. A symmetric representative leaves out the orientations that
+     * another symmetry of it maps to a smaller one.
+     */
+    public static final int REACHABLE_CORNER_STATES;
+    
+    static {
+        
+        //Facelet positions on a cube of side 4 centered at the origin, with y
+        //up, x right and z towards the front
+        byte[] solved = new Cube().cube;
+        int[][] positions = new int[54][];
+        for (int i = 0; i < 54; i++)
+            positions[i] = position(i);
+        
+        int s = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            for (int quarter = 0; quarter < 4; quarter++) {
+                for (int flip = 0; flip < 2; flip++) {
+                    for (int mirror = 0; mirror < 2; mirror++) {
+                        for (int i = 0; i < 54; i++) {
+                            int[] p = transform(positions[i], axis, quarter, flip, mirror);
+                            FACELETS[s][i] = (byte)find(positions, p);
+                        }
+                        //Centers keep their face, so the center facelets give the color map
+                        for (int face = 0; face < 6; face++)
+                            COLORS[s][face] = solved[FACELETS[s][CENTERS[face]]];
+                        s++;
+                    }
+                }
+            }
+        }
+        
+        byte[][] turned = new byte[CubieCube.MOVES][];
+        for (int m = 0; m < CubieCube.MOVES; m++)
+            turned[m] = Cube.rotate(solved, (byte)(m / 3), m % 3 + 1);
+        for (s = 0; s < FULL_COUNT; s++) {
+            for (int m = 0; m < CubieCube.MOVES; m++) {
+                byte[] conjugate = conjugate(turned[m], s);
+                int n = 0;
+                while (!Arrays.equals(turned[n], conjugate))
+                    n++;
+                MOVES[s][m] = (byte)n;
+            }
+            for (int t = 0; t < FULL_COUNT; t++) {
+                int i = 0;
+                while (i < 54 && FACELETS[t][FACELETS[s][i]] == i)
+                    i++;
+                if (i == 54)
+                    INVERSE[s] = (byte)t;
+            }
+        }
+        
+        byte[] state = new byte[54];
+        for (int o = 0; o < CubieCube.CORNER_ORIENTATIONS; o++) {
+            KorfAlgorithm.unrankCorners(o, state);
+            for (s = 0; s < COUNT; s++)
+                ORIENTATION_CONJUGATE[o][s] = (char)(KorfAlgorithm.rankCorners(conjugate(state, s))
+                        % CubieCube.CORNER_ORIENTATIONS);
+        }
+        
+        char[] representatives = new char[CubieCube.CORNER_PERMUTATIONS];
+        int classes = 0;
+        int[] conjugates = new int[COUNT];
+        for (int p = 0; p < CubieCube.CORNER_PERMUTATIONS; p++) {
+            KorfAlgorithm.unrankCorners(p * CubieCube.CORNER_ORIENTATIONS, state);
+            int min = p;
+            for (s = 0; s < COUNT; s++) {
+                conjugates[s] = KorfAlgorithm.rankCorners(conjugate(state, s)) / CubieCube.CORNER_ORIENTATIONS;
+                min = Math.min(min, conjugates[s]);
+            }
+            for (s = 0; s < COUNT; s++) {
+                if (conjugates[s] == min)
+                    CORNER_SYMMETRIES[p] |= 1 << s;
+            }
+            //Permutations are visited in order, so a class is met first at its representative
+            if (min == p) {
+                representatives[classes] = (char)p;
+                CORNER_CLASS[p] = (char)classes++;
+            } else {
+                CORNER_CLASS[p] = CORNER_CLASS[min];
+            }
+        }
+        
+        CORNER_CLASSES = classes;
+        CORNER_REPRESENTATIVE = Arrays.copyOf(representatives, classes);
+        MAX_CORNER_STATES = classes * CubieCube.CORNER_ORIENTATIONS;
+        
+        int reachable = 0;
+        for (int c = 0; c < classes; c++) {
+            int p = CORNER_REPRESENTATIVE[c];
+            for (int o = 0; o < CubieCube.CORNER_ORIENTATIONS; o++) {
+                if (rankCorners(p, o) % CubieCube.CORNER_ORIENTATIONS == o)
+                    reachable++;
+            }
+        }
+        REACHABLE_CORNER_STATES = reachable;
+        
+    }
+    
+    /**
+     * Conjugates a state by a symmetry.
+     * @param state current state of the cube
+     * @param symmetry symmetry number, in [0, FULL_COUNT)
+     * @return conjugated state
+     */
+    public static byte[] conjugate(byte[] state, int symmetry) {
+        byte[] conjugate = new byte[state.length];
+        byte[] facelets = FACELETS[symmetry];
+        byte[] colors = COLORS[symmetry];
+        for (int i = 0; i < state.length; i++)
+            conjugate[facelets[i]] = colors[state[i]];
+        return conjugate;
+    }
+    
+    /**
+     * Conjugates a move by a symmetry. Conjugating a state and then turning
+     * the conjugated move is the same as turning the move and then
+     * conjugating, so a solution of a state conjugates to a solution of the
+     * conjugated state.
+     * @param move move number, as in CubieCube
+     * @param symmetry symmetry number, in [0, FULL_COUNT)
+     * @return conjugated move
+     */
+    public static int conjugateMove(int move, int symmetry) {
+        return MOVES[symmetry][move];
+    }
+    
+    /**
+     * @param symmetry symmetry number, in [0, FULL_COUNT)
+     * @return symmetry that undoes it
+     */
+    public static int inverse(int symmetry) {
+        return INVERSE[symmetry];
+    }
+    
+    /**
+     * Ranks the corners of a state in the symmetry-reduced corner table.
+     * @param state current state of the cube
+     * @return index of the state's class
+     */
+    public static int rankCorners(byte[] state) {
+        int index = KorfAlgorithm.rankCorners(state);
+        return rankCorners(index / CubieCube.CORNER_ORIENTATIONS, index % CubieCube.CORNER_ORIENTATIONS);
+    }
+    
+    /**
+     * Ranks corner coordinates in the symmetry-reduced corner table. When
+     * several symmetries lead to the representative permutation, the smallest
+     * of the orientations they lead to is used, so all conjugates of a state
+     * share one index.
+     * @param permutation corner permutation coordinate, as in CubieCube
+     * @param orientation corner orientation coordinate, as in CubieCube
+     * @return index of the class
+     */
+    public static int rankCorners(int permutation, int orientation) {
+        int symmetries = CORNER_SYMMETRIES[permutation];
+        char[] conjugates = ORIENTATION_CONJUGATE[orientation];
+        int min = conjugates[Integer.numberOfTrailingZeros(symmetries)];
+        for (symmetries &= symmetries - 1; symmetries != 0; symmetries &= symmetries - 1)
+            min = Math.min(min, conjugates[Integer.numberOfTrailingZeros(symmetries)]);
+        return CORNER_CLASS[permutation] * CubieCube.CORNER_ORIENTATIONS + min;
+    }
+    
+    /**
+     * Writes the corners of the representative of a class into a state.
+     * @param index index of the class
+     * @param state cube state the corners are written to
+     */
+    public static void unrankCorners(int index, byte[] state) {
+        int permutation = CORNER_REPRESENTATIVE[index / CubieCube.CORNER_ORIENTATIONS];
+        KorfAlgorithm.unrankCorners(permutation * CubieCube.CORNER_ORIENTATIONS
+                + index % CubieCube.CORNER_ORIENTATIONS, state);
+    }
+    
+    /**
+     * @param facelet facelet index, as in Cube.cube
+     * @return coordinates of the facelet
+     */
+    private static int[] position(int facelet) {
+        if (facelet < 9)
+            return new int[] {facelet % 3 - 1, 2, facelet / 3 - 1};
+        if (facelet >= 45)
+            return new int[] {facelet % 3 - 1, (facelet - 45) / 3 - 1, -2};
+        if (facelet >= 36)
+            return new int[] {facelet % 3 - 1, -2, 1 - (facelet - 36) / 3};
+        
+        int row = (facelet - 9) / 9;
+        int column = (facelet - 9) % 3;
+        switch ((facelet - 9) % 9 / 3) {
+            case 0:
+                return new int[] {-2, 1 - row, column - 1};
+            case 1:
+                return new int[] {column - 1, 1 - row, 2};
+            default:
+                return new int[] {2, 1 - row, 1 - column};
+        }
+    }
+    
+    /**
+     * Applies a symmetry to facelet coordinates: third turns about the
+     * diagonal through the up-right-front corner, then a left to right
+     * mirror, then a half turn about the front/back axis, then quarter turns
+     * about the up/down axis.
+     */
+    private static int[] transform(int[] p, int axis, int quarter, int flip, int mirror) {
+        int x = p[0];
+        int y = p[1];
+        int z = p[2];
+        for (int i = 0; i < axis; i++) {
+            int t = x;
+            x = y;
+            y = z;
+            z = t;
+        }
+        if (mirror == 1)
+            x = -x;
+        if (flip == 1) {
+            x = -x;
+            y = -y;
+        }
+        for (int i = 0; i < quarter; i++) {
+            int t = x;
+            x = -z;
+            z = t;
+        }
+        return new int[] {x, y, z};
+    }
+    
+    /**
+     * @return facelet at the given coordinates
+     */
+    private static int find(int[][] positions, int[] p) {
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i][0] == p[0] && positions[i][1] == p[1] && positions[i][2] == p[2])
+                return i;
+        }
+        throw new IllegalStateException("No facelet at " + Arrays.toString(p));
+    }
+    
+}
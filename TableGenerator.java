@@ -0,0 +1,339 @@
+package rubik;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Generates a heuristic table with a level-synchronous breadth-first search.
+ * Each depth layer is split into chunks that are expanded on a fixed pool of
+ * worker threads. States are claimed through an atomic bitset, so every state
+ * is written and expanded exactly once and the table is identical to the one
+ * built by the serial generators in KorfAlgorithm.
+ *
+ * generateByScan builds the same table without a frontier: the table itself
+ * records which states are at the current depth, so memory stays fixed at the
+ * table plus the bitset however wide a layer grows.
+ */
+public class TableGenerator {
+    
+    /**
+     * Number of chunks each depth layer is split into per worker thread.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+    
+    /**
+     * Largest table generate can build. A layer may hold nearly every state
+     * of the table, and the frontier keeps a layer in one array.
+     */
+    public static final long MAX_FRONTIER_TABLE = Integer.MAX_VALUE - 8;
+    
+    private final int kind;
+    private final int threads;
+    private GenerationListener listener;
+    
+    /**
+     * Generator using every available processor.
+     * @param kind table kind, see PatternDatabase
+     */
+    public TableGenerator(int kind) {
+        this(kind, Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * @param kind table kind, see PatternDatabase
+     * @param threads number of worker threads
+     */
+    public TableGenerator(int kind, int threads) {
+        this.kind = kind;
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * Reports the progress of every following generation, once per depth
+     * layer, see GenerationProgress.
+     * @param listener listener of the generations, or null for none
+     */
+    public void setListener(GenerationListener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * Generates the heuristic table.
+     * @return heuristic table of one byte per entry
+     * @throws IllegalArgumentException if the table is larger than
+     * MAX_FRONTIER_TABLE, use generateByScan for those
+     */
+    public PatternDatabase generate() {
+        
+        if (PatternDatabase.size(kind) > MAX_FRONTIER_TABLE)
+            throw new IllegalArgumentException(String.format(
+                    "Table of %,d entries is too large for a frontier, use generateByScan", PatternDatabase.size(kind)));
+        
+        PatternDatabase table = PatternDatabase.allocate(kind);
+        AtomicIntegerArray seen = new AtomicIntegerArray((int)((table.size() + 31) / 32));
+        table.fill(KorfAlgorithm.UNSEEN);
+        
+        byte[] solved = new Cube().cube;
+        long start = PatternDatabase.rank(kind, solved);
+        table.set(start, (byte)0);
+        claim(seen, start);
+        
+        long[] frontier = {start};
+        GenerationMonitor monitor = new GenerationMonitor(kind, listener);
+        monitor.layer(0, 1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        
+        try {
+            for (int depth = 1; frontier.length > 0; depth++) {
+                int chunks = Math.min(frontier.length, threads * CHUNKS_PER_THREAD);
+                List<Future<long[]>> results = new ArrayList<>();
+                
+                for (int c = 0; c < chunks; c++) {
+                    int from = (int)((long)frontier.length * c / chunks);
+                    int to = (int)((long)frontier.length * (c + 1) / chunks);
+                    results.add(pool.submit(new Expansion(table, seen, solved, frontier, from, to, depth)));
+                }
+                
+                frontier = collect(results);
+                if (frontier.length > 0)
+                    monitor.layer(depth, frontier.length);
+            }
+            monitor.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Heuristic table generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Heuristic table generation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        return table;
+        
+    }
+    
+    /**
+     * Generates the heuristic table by scanning it for the states of each 
+     * depth in turn instead of keeping a frontier. Every scan splits the
+     * table into index ranges that are expanded on the worker threads.
+     * @return heuristic table of one byte per entry
+     */
+    public PatternDatabase generateByScan() {
+        
+        PatternDatabase table = PatternDatabase.allocate(kind);
+        AtomicIntegerArray seen = new AtomicIntegerArray((int)((table.size() + 31) / 32));
+        table.fill(KorfAlgorithm.UNSEEN);
+        
+        byte[] solved = new Cube().cube;
+        long start = PatternDatabase.rank(kind, solved);
+        table.set(start, (byte)0);
+        claim(seen, start);
+        
+        GenerationMonitor monitor = new GenerationMonitor(kind, listener);
+        monitor.layer(0, 1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        
+        try {
+            long found = 1;
+            for (int depth = 0; found > 0; depth++) {
+                int chunks = threads * CHUNKS_PER_THREAD;
+                List<Future<Long>> results = new ArrayList<>();
+                
+                for (int c = 0; c < chunks; c++) {
+                    long from = table.size() * c / chunks;
+                    long to = table.size() * (c + 1) / chunks;
+                    results.add(pool.submit(new Scan(table, seen, solved, from, to, depth)));
+                }
+                
+                found = 0;
+                for (Future<Long> result : results)
+                    found += result.get();
+                if (found > 0)
+                    monitor.layer(depth + 1, found);
+            }
+            monitor.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Heuristic table generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Heuristic table generation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        return table;
+        
+    }
+    
+    /**
+     * Waits for the expansions of a layer and joins their new states into
+     * the next frontier.
+     * @param results pending expansions
+     * @return next frontier
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    private static long[] collect(List<Future<long[]>> results)
+            throws InterruptedException, ExecutionException {
+        
+        long[][] parts = new long[results.size()][];
+        int total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = results.get(i).get();
+            total += parts[i].length;
+        }
+        
+        long[] next = new long[total];
+        int offset = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, next, offset, part.length);
+            offset += part.length;
+        }
+        return next;
+        
+    }
+    
+    /**
+     * Atomically sets the bit of a state.
+     * @param seen bitset of claimed states
+     * @param index state index
+     * @return true if the bit was clear, false if another thread set it first
+     */
+    private static boolean claim(AtomicIntegerArray seen, long index) {
+        int word = (int)(index >>> 5);
+        int bit = 1 << (int)(index & 31);
+        while (true) {
+            int current = seen.get(word);
+            if ((current & bit) != 0)
+                return false;
+            if (seen.compareAndSet(word, current, current | bit))
+                return true;
+        }
+    }
+    
+    /**
+     * Expands one chunk of a depth layer.
+     */
+    private class Expansion implements Callable<long[]> {
+        
+        private final PatternDatabase table;
+        private final AtomicIntegerArray seen;
+        private final byte[] solved;
+        private final long[] frontier;
+        private final int from;
+        private final int to;
+        private final int depth;
+        
+        Expansion(PatternDatabase table, AtomicIntegerArray seen, byte[] solved, long[] frontier,
+                int from, int to, int depth) {
+            this.table = table;
+            this.seen = seen;
+            this.solved = solved;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+        
+        /**
+         * @return states first reached by this chunk
+         */
+        @Override
+        public long[] call() {
+            
+            byte[] state = solved.clone();
+            long[] found = new long[Math.max(16, to - from)];
+            int count = 0;
+            
+            for (int i = from; i < to; i++) {
+                PatternDatabase.unrank(kind, frontier[i], state);
+                
+                for (byte face : Cube.FACES.keySet()) {
+                    byte[] next = state;
+                    for (int turns = 1; turns < 4; turns++) {
+                        next = Cube.rotate(next, face, 1);
+                        long child = PatternDatabase.rank(kind, next);
+                        
+                        //Only the thread that claims a state writes and expands it
+                        if (claim(seen, child)) {
+                            table.set(child, (byte)depth);
+                            if (count == found.length)
+                                found = Arrays.copyOf(found, (int)Math.min(count * 2L, MAX_FRONTIER_TABLE));
+                            found[count++] = child;
+                        }
+                    }
+                }
+            }
+            
+            return Arrays.copyOf(found, count);
+            
+        }
+        
+    }
+    
+    /**
+     * Expands the states of one depth found in an index range of the table.
+     * States reached during the scan are one level deeper, so they are never
+     * mistaken for states of the depth being scanned.
+     */
+    private class Scan implements Callable<Long> {
+        
+        private final PatternDatabase table;
+        private final AtomicIntegerArray seen;
+        private final byte[] solved;
+        private final long from;
+        private final long to;
+        private final int depth;
+        
+        Scan(PatternDatabase table, AtomicIntegerArray seen, byte[] solved, long from, long to, int depth) {
+            this.table = table;
+            this.seen = seen;
+            this.solved = solved;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+        
+        /**
+         * @return number of states first reached by this range
+         */
+        @Override
+        public Long call() {
+            
+            byte[] state = solved.clone();
+            long count = 0;
+            
+            for (long i = from; i < to; i++) {
+                if (table.get(i) != depth)
+                    continue;
+                
+                PatternDatabase.unrank(kind, i, state);
+                
+                for (byte face : Cube.FACES.keySet()) {
+                    byte[] next = state;
+                    for (int turns = 1; turns < 4; turns++) {
+                        next = Cube.rotate(next, face, 1);
+                        long child = PatternDatabase.rank(kind, next);
+                        
+                        if (claim(seen, child)) {
+                            table.set(child, (byte)(depth + 1));
+                            count++;
+                        }
+                    }
+                }
+            }
+            
+            return count;
+            
+        }
+        
+    }
+    
+}
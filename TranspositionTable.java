@@ -0,0 +1,115 @@
+package rubik;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size transposition table for IDA*, recording the smallest cost at
+ * which a state has been searched in the current iteration. A state reached
+ * again at the same or a larger cost has a subtree that is no larger than
+ * the one already searched, so it can be pruned without losing a solution
+ * or a smaller next bound.
+ *
+ * Each entry is a single long holding the upper bits of the state hash, the
+ * stamp of the iteration that wrote it and the cost, so entries are read and
+ * written without locks and a torn entry cannot occur. Entries of earlier
+ * iterations are ignored instead of cleared. On a collision the entry of
+ * smaller cost is kept, as it stands for the larger subtree. Threads may
+ * share a table: a state pruned because another thread is still searching it
+ * is searched to the end by that thread.
+ */
+public class TranspositionTable {
+    
+    private static final int COST_BITS = 8;
+    private static final int STAMP_BITS = 16;
+    private static final long COST_MASK = (1L << COST_BITS) - 1;
+    private static final long STAMP_MASK = ((1L << STAMP_BITS) - 1) << COST_BITS;
+    private static final long TAG_MASK = -1L << (COST_BITS + STAMP_BITS);
+    
+    private final AtomicLongArray entries;
+    private final int mask;
+    private final AtomicInteger stamp = new AtomicInteger();
+    
+    /**
+     * @param bits base-2 logarithm of the number of entries, in [1, 30]
+     */
+    public TranspositionTable(int bits) {
+        if (bits < 1 || bits > 30)
+            throw new IllegalArgumentException("Transposition table size out of range: 2^" + bits);
+        this.entries = new AtomicLongArray(1 << bits);
+        this.mask = (1 << bits) - 1;
+    }
+    
+    /**
+     * @return number of entries
+     */
+    public int capacity() {
+        return entries.length();
+    }
+    
+    /**
+     * Starts an iteration, after which the entries of every earlier iteration
+     * are ignored. Must not be called while a search is using the table.
+     * @return stamp of the new iteration
+     */
+    public int nextStamp() {
+        int next = stamp.incrementAndGet();
+        if (next >= 1 << STAMP_BITS) {
+            //Stamps are about to repeat, so old entries could pass for new ones
+            clear();
+            stamp.set(1);
+            next = 1;
+        }
+        return next;
+    }
+    
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++)
+            entries.setOpaque(i, 0);
+    }
+    
+    /**
+     * Checks whether a state has been searched in an iteration at no larger
+     * cost, and records the state otherwise.
+     * @param hash hash of the state, see mix
+     * @param stamp stamp of the current iteration
+     * @param cost cost of the path to the state
+     * @return true if the state can be pruned
+     */
+    public boolean visit(long hash, int stamp, int cost) {
+        
+        int slot = (int)hash & mask;
+        long tag = hash & TAG_MASK;
+        long entry = entries.getOpaque(slot);
+        
+        if ((entry & STAMP_MASK) >>> COST_BITS == stamp) {
+            if ((entry & TAG_MASK) == tag && (entry & COST_MASK) <= cost)
+                return true;
+            if ((entry & TAG_MASK) != tag && (entry & COST_MASK) < cost)
+                return false;
+        }
+        
+        entries.setOpaque(slot, tag | (long)stamp << COST_BITS | cost);
+        return false;
+        
+    }
+    
+    /**
+     * Spreads the bits of a key over a 64-bit hash, with the finalizer of
+     * MurmurHash3.
+     * @param key key of a state
+     * @return hash
+     */
+    public static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+    
+}
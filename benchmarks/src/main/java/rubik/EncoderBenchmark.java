@@ -0,0 +1,96 @@
+package rubik;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of each encoder, from a facelet state or from cubie coordinates to a
+ * table index or key. Each call encodes the next of a fixed set of
+ * scrambled states.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EncoderBenchmark {
+    
+    private static final int STATES = 1024;
+    
+    private byte[][] states;
+    private CubieCube[] cubes;
+    private byte[][] edges;
+    private int next;
+    
+    @Setup
+    public void setup() {
+        states = Scrambles.scrambles(STATES, 20, Scrambles.SEED);
+        cubes = new CubieCube[STATES];
+        edges = new byte[STATES][12];
+        for (int i = 0; i < STATES; i++) {
+            cubes[i] = new CubieCube(states[i]);
+            cubes[i].getEdges(edges[i]);
+        }
+    }
+    
+    private int next() {
+        return next = (next + 1) & (STATES - 1);
+    }
+    
+    @Benchmark
+    public int rankCorners() {
+        return KorfAlgorithm.rankCorners(states[next()]);
+    }
+    
+    @Benchmark
+    public int rankFirstEdges() {
+        return KorfAlgorithm.rankFirstEdges(states[next()]);
+    }
+    
+    @Benchmark
+    public int rankSecondEdges() {
+        return KorfAlgorithm.rankSecondEdges(states[next()]);
+    }
+    
+    @Benchmark
+    public long rankSevenEdges() {
+        return KorfAlgorithm.rankEdges(states[next()], 0x07f);
+    }
+    
+    @Benchmark
+    public int rankSymmetricCorners() {
+        return Symmetry.rankCorners(states[next()]);
+    }
+    
+    @Benchmark
+    public CubieCube cubieCube() {
+        return new CubieCube(states[next()]);
+    }
+    
+    @Benchmark
+    public int cornerCoordinates() {
+        CubieCube cube = cubes[next()];
+        return cube.cornerPermutation() * CubieCube.CORNER_ORIENTATIONS + cube.cornerOrientation();
+    }
+    
+    @Benchmark
+    public long cubieEdges() {
+        return CubieCube.rankEdges(edges[next()], KorfAlgorithm.FIRST_EDGES);
+    }
+    
+    @Benchmark
+    public StateKey stateKey() {
+        return StateKey.of(states[next()]);
+    }
+    
+}
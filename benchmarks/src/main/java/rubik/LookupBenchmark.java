@@ -0,0 +1,83 @@
+package rubik;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of looking up a table entry at a random index, which is dominated by
+ * cache and TLB misses once the table is larger than the caches. The tables
+ * are allocated at full size and filled with a constant, since the cost of a
+ * lookup does not depend on the entries, so no generated tables are needed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class LookupBenchmark {
+    
+    private static final int INDICES = 1 << 16;
+    
+    /**
+     * Table kind: corners, corners-sym or edges-6 (the first six edges).
+     */
+    @Param({"corners", "corners-sym", "edges-6"})
+    public String table;
+    
+    /**
+     * Whether the table holds two bits per entry instead of one byte.
+     */
+    @Param({"false", "true"})
+    public boolean packed;
+    
+    private PatternDatabase database;
+    private long[] indices;
+    private int next;
+    
+    @Setup
+    public void setup() {
+        int kind;
+        switch (table) {
+            case "corners":
+                kind = PatternDatabase.CORNERS;
+                break;
+            case "corners-sym":
+                kind = PatternDatabase.SYM_CORNERS;
+                break;
+            case "edges-6":
+                kind = PatternDatabase.FIRST_EDGES;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown table: " + table);
+        }
+        
+        database = PatternDatabase.allocate(kind);
+        database.fill((byte)7);
+        if (packed)
+            database = database.pack();
+        
+        Random random = new Random(Scrambles.SEED);
+        indices = new long[INDICES];
+        for (int i = 0; i < INDICES; i++)
+            indices[i] = (long)(random.nextDouble() * database.size());
+    }
+    
+    @Benchmark
+    public byte get() {
+        next = (next + 1) & (INDICES - 1);
+        return database.get(indices[next]);
+    }
+    
+}
@@ -0,0 +1,83 @@
+package rubik;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of applying one move, on facelets with Cube.rotate and on the cubie
+ * coordinates the searcher uses. Each call applies the next of the 18 moves
+ * to a scrambled cube.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+    
+    /**
+     * Number of quarter turns, or 0 to cycle through all three.
+     */
+    @Param({"0", "1", "2", "3"})
+    public int turns;
+    
+    private byte[] state;
+    private CubieCube cube;
+    private int cornerPermutation;
+    private int cornerOrientation;
+    private byte[] edges = new byte[12];
+    private int move;
+    
+    @Setup
+    public void setup() {
+        state = Scrambles.scramble(new Random(Scrambles.SEED), 20);
+        cube = new CubieCube(state);
+        cornerPermutation = cube.cornerPermutation();
+        cornerOrientation = cube.cornerOrientation();
+        cube.getEdges(edges);
+    }
+    
+    /**
+     * @return next move, numbered as in CubieCube
+     */
+    private int next() {
+        int m = move;
+        move = turns == 0 ? (m + 1) % CubieCube.MOVES : (m + 3) % CubieCube.MOVES;
+        return turns == 0 ? m : m - m % 3 + turns - 1;
+    }
+    
+    @Benchmark
+    public byte[] rotate() {
+        int m = next();
+        return Cube.rotate(state, (byte)(m / 3), m % 3 + 1);
+    }
+    
+    @Benchmark
+    public CubieCube cubieMove() {
+        cube.move(next());
+        return cube;
+    }
+    
+    @Benchmark
+    public int coordinateMove() {
+        int m = next();
+        cornerPermutation = CubieCube.CORNER_PERMUTATION_MOVE[cornerPermutation][m];
+        cornerOrientation = CubieCube.CORNER_ORIENTATION_MOVE[cornerOrientation][m];
+        for (int i = 0; i < edges.length; i++)
+            edges[i] = CubieCube.EDGE_MOVE[edges[i]][m];
+        return cornerPermutation + cornerOrientation + edges[0];
+    }
+    
+}
@@ -0,0 +1,64 @@
+package rubik;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Fixed-seed scrambles, so that every run of a benchmark measures the same
+ * states.
+ */
+final class Scrambles {
+    
+    static final long SEED = 20131;
+    
+    private Scrambles() {
+    }
+    
+    /**
+     * @param count number of scrambles
+     * @param length number of moves in each scramble
+     * @param seed seed of the moves
+     * @return scrambled states
+     */
+    static byte[][] scrambles(int count, int length, long seed) {
+        Random random = new Random(seed);
+        byte[][] states = new byte[count][];
+        for (int i = 0; i < count; i++)
+            states[i] = scramble(random, length);
+        return states;
+    }
+    
+    /**
+     * Applies random face turns to the solved cube, skipping the turns
+     * Cube.isRedundant rules out so that the moves do not cancel.
+     * @param random source of the moves
+     * @param length number of moves
+     * @return scrambled state
+     */
+    static byte[] scramble(Random random, int length) {
+        byte[] state = new CubieCube().toFacelets();
+        int last = -1;
+        for (int i = 0; i < length; i++) {
+            int face;
+            do {
+                face = random.nextInt(6);
+            } while (Cube.isRedundant(last, face));
+            state = Cube.rotate(state, (byte)face, random.nextInt(3) + 1);
+            last = face;
+        }
+        return state;
+    }
+    
+    /**
+     * Loads the heuristic tables from the directory named by the
+     * rubik.pdb.dir system property, generating any that are missing.
+     * @return corner and edge heuristic, also set as IDAStar.heuristic
+     * @throws IOException if a generated table cannot be stored
+     */
+    static synchronized Heuristic heuristic() throws IOException {
+        if (IDAStar.heuristic == null)
+            new PatternDatabaseStore().loadAll();
+        return IDAStar.heuristic;
+    }
+    
+}
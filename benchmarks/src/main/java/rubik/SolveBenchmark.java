@@ -0,0 +1,58 @@
+package rubik;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end optimal solves with Searcher. Each call solves the next cube of
+ * a fixed-seed set scrambled by the given number of moves, so the score is
+ * solves per second over the whole set. The tables are loaded as by
+ * PatternDatabaseStore, from the directory named by the rubik.pdb.dir system
+ * property.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class SolveBenchmark {
+    
+    private static final int CUBES = 16;
+    
+    /**
+     * Number of scramble moves.
+     */
+    @Param({"8", "10", "12", "14"})
+    public int depth;
+    
+    private byte[][] states;
+    private Searcher searcher;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        searcher = new Searcher(Scrambles.heuristic());
+        //A different set per depth, so the sets are not prefixes of each other
+        states = Scrambles.scrambles(CUBES, depth, Scrambles.SEED + depth);
+    }
+    
+    @Benchmark
+    public String solve() {
+        next = (next + 1) % CUBES;
+        return searcher.solve(states[next]);
+    }
+    
+}
@@ -0,0 +1,54 @@
+package rubik;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of expanding a node with CubeNode.getSuccessors: every non-redundant
+ * move applied, the heuristic evaluated and a node built for each. The
+ * tables are loaded as by PatternDatabaseStore, from the directory named by
+ * the rubik.pdb.dir system property.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class SuccessorBenchmark {
+    
+    private static final int NODES = 256;
+    
+    private CubeNode[] nodes;
+    private int next;
+    
+    @Setup
+    public void setup() throws IOException {
+        Heuristic heuristic = Scrambles.heuristic();
+        byte[][] states = Scrambles.scrambles(NODES, 20, Scrambles.SEED);
+        nodes = new CubeNode[NODES];
+        for (int i = 0; i < NODES; i++) {
+            int[] values = new int[heuristic.size()];
+            nodes[i] = new CubeNode(states[i], heuristic.evaluate(states[i], values), "");
+            nodes[i].heuristics = values;
+        }
+    }
+    
+    @Benchmark
+    public ArrayList<CubeNode> getSuccessors() {
+        next = (next + 1) & (NODES - 1);
+        return CubeNode.getSuccessors(nodes[next]);
+    }
+    
+}
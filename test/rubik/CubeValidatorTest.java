@@ -0,0 +1,90 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every check of the validator, on reachable states and on states broken in
+ * one way each.
+ */
+public class CubeValidatorTest {
+    
+    @Test
+    public void scrambledStatesAreValid() {
+        Random random = new Random(14);
+        for (int i = 0; i < 1000; i++)
+            assertEquals(CubeValidator.VALID, CubeValidator.validate(TestStates.scramble(random, 25)));
+    }
+    
+    @Test
+    public void wrongColorCountIsRejected() {
+        byte[] state = TestStates.solved();
+        state[0] = state[53];
+        assertEquals(CubeValidator.COLORS, CubeValidator.validate(state));
+    }
+    
+    @Test
+    public void unknownColorIsRejected() {
+        byte[] state = TestStates.solved();
+        state[0] = 6;
+        assertEquals(CubeValidator.COLORS, CubeValidator.validate(state));
+    }
+    
+    @Test
+    public void swappedCentersAreRejected() {
+        byte[] state = TestStates.swap(TestStates.solved(), 4, 49);
+        assertEquals(CubeValidator.CENTERS, CubeValidator.validate(state));
+    }
+    
+    @Test
+    public void mirroredCornerIsRejected() {
+        //The colors of the corner are all there, but in counterclockwise order
+        byte[] state = TestStates.swap(TestStates.solved(), 9, 51);
+        assertEquals(CubeValidator.CORNERS, CubeValidator.validate(state));
+    }
+    
+    @Test
+    public void mirroredCornersAreRejectedAnywhere() {
+        Random random = new Random(15);
+        for (int i = 0; i < 1000; i++) {
+            byte[] state = TestStates.scramble(random, 25);
+            byte[] corner = Cube.CORNERS[random.nextInt(8)];
+            TestStates.swap(state, corner[1], corner[2]);
+            assertEquals(CubeValidator.CORNERS, CubeValidator.validate(state));
+        }
+    }
+    
+    @Test
+    public void twistedCornerIsRejected() {
+        byte[] state = TestStates.solved();
+        byte[] corner = Cube.CORNERS[0];
+        byte first = state[corner[0]];
+        state[corner[0]] = state[corner[1]];
+        state[corner[1]] = state[corner[2]];
+        state[corner[2]] = first;
+        assertEquals(CubeValidator.CORNER_TWIST, CubeValidator.validate(state));
+    }
+    
+    @Test
+    public void flippedEdgeIsRejected() {
+        byte[] edge = Cube.EDGES[0];
+        byte[] state = TestStates.swap(TestStates.solved(), edge[0], edge[1]);
+        assertEquals(CubeValidator.EDGE_FLIP, CubeValidator.validate(state));
+    }
+    
+    @Test
+    public void swappedEdgesAreRejected() {
+        byte[] state = TestStates.solved();
+        for (int k = 0; k < 2; k++)
+            TestStates.swap(state, Cube.EDGES[0][k], Cube.EDGES[1][k]);
+        assertEquals(CubeValidator.PERMUTATION_PARITY, CubeValidator.validate(state));
+    }
+    
+    @Test
+    public void wrongLengthIsRejected() {
+        assertEquals(CubeValidator.COLORS, CubeValidator.validate(new byte[53]));
+    }
+    
+}
@@ -0,0 +1,72 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cubie representation and state keys against the facelet representation.
+ */
+public class CubieCubeTest {
+    
+    @Test
+    public void faceletsRoundTrip() {
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            byte[] state = TestStates.scramble(random, 25);
+            assertArrayEquals(state, new CubieCube(state).toFacelets());
+        }
+    }
+    
+    @Test
+    public void movesMatchRotations() {
+        Random random = new Random(8);
+        for (int i = 0; i < 200; i++) {
+            byte[] state = TestStates.scramble(random, 25);
+            for (int move = 0; move < CubieCube.MOVES; move++) {
+                CubieCube cube = new CubieCube(state);
+                cube.move(move);
+                assertArrayEquals(Cube.rotate(state, (byte)(move / 3), move % 3 + 1), cube.toFacelets());
+            }
+        }
+    }
+    
+    @Test
+    public void inverseUndoesState() {
+        Random random = new Random(9);
+        for (int i = 0; i < 1000; i++) {
+            CubieCube cube = new CubieCube(TestStates.scramble(random, 25));
+            CubieCube product = new CubieCube(cube);
+            product.multiply(cube.inverse());
+            assertArrayEquals(TestStates.solved(), product.toFacelets());
+        }
+    }
+    
+    @Test
+    public void stateKeysRoundTrip() {
+        Random random = new Random(10);
+        Set<StateKey> keys = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            byte[] state = TestStates.scramble(random, 25);
+            StateKey key = StateKey.of(state);
+            assertArrayEquals(state, key.toFacelets());
+            assertEquals(key, new StateKey(key.corners(), key.edges()));
+            keys.add(key);
+        }
+        assertEquals(1000, keys.size());
+    }
+    
+    @Test
+    public void onlySolvedCubeIsGoal() {
+        assertTrue(StateKey.of(TestStates.solved()).isGoal());
+        byte[] turned = Cube.rotate(TestStates.solved(), (byte)0, 1);
+        assertNotEquals(StateKey.GOAL, StateKey.of(turned));
+    }
+    
+}
@@ -0,0 +1,62 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Packed tables recover the same values as the tables of exact depths.
+ */
+public class HeuristicTest {
+    
+    private static final int[] KINDS = {PatternDatabase.edges(0x7), PatternDatabase.edges(0x38)};
+    
+    private static final Heuristic EXACT;
+    private static final Heuristic PACKED;
+    
+    static {
+        PatternDatabase[] exact = new PatternDatabase[KINDS.length];
+        PatternDatabase[] packed = new PatternDatabase[KINDS.length];
+        for (int i = 0; i < KINDS.length; i++) {
+            exact[i] = new TableGenerator(KINDS[i], 2).generate();
+            packed[i] = exact[i].pack();
+        }
+        EXACT = new Heuristic(exact);
+        PACKED = new Heuristic(packed);
+    }
+    
+    @Test
+    public void packedValuesMatchExactValuesAlongRandomWalks() {
+        Random random = new Random(19);
+        int[] exact = new int[KINDS.length];
+        int[] packed = new int[KINDS.length];
+        int[] exactParent = new int[KINDS.length];
+        int[] packedParent = new int[KINDS.length];
+        
+        for (int walk = 0; walk < 20; walk++) {
+            byte[] state = TestStates.scramble(random, random.nextInt(20));
+            assertEquals(EXACT.evaluate(state, exact), PACKED.evaluate(state, packed));
+            for (int step = 0; step < 100; step++) {
+                System.arraycopy(exact, 0, exactParent, 0, exact.length);
+                System.arraycopy(packed, 0, packedParent, 0, packed.length);
+                state = Cube.rotate(state, (byte)random.nextInt(6), random.nextInt(3) + 1);
+                assertEquals(EXACT.evaluate(state, exactParent, exact), PACKED.evaluate(state, packedParent, packed));
+                for (int i = 0; i < KINDS.length; i++)
+                    assertEquals(exact[i], packed[i]);
+            }
+        }
+    }
+    
+    @Test
+    public void packedSearchFindsSolutionsOfTheSameLength() {
+        Random random = new Random(20);
+        Searcher exact = new Searcher(EXACT, Searcher.NO_DUAL);
+        Searcher packed = new Searcher(PACKED, Searcher.NO_DUAL);
+        for (int i = 0; i < 5; i++) {
+            byte[] state = TestStates.scramble(random, 5);
+            assertEquals(exact.solve(state).length(), packed.solve(state).length());
+        }
+    }
+    
+}
@@ -0,0 +1,48 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Parallel solves against the sequential searcher.
+ */
+public class ParallelSearcherTest {
+    
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+    
+    @AfterAll
+    public static void shutdown() {
+        POOL.shutdownNow();
+    }
+    
+    @Test
+    public void parallelSolutionsAreOptimal() {
+        Random random = new Random(23);
+        Heuristic heuristic = TestStates.heuristic();
+        Searcher sequential = new Searcher(heuristic, Searcher.NO_DUAL);
+        ParallelSearcher[] searchers = {
+            new ParallelSearcher(heuristic, POOL),
+            new ParallelSearcher(heuristic, POOL, new TranspositionTable(16))
+        };
+        for (int i = 0; i < 10; i++) {
+            byte[] state = TestStates.scramble(random, 8);
+            int length = sequential.solve(state).length();
+            for (ParallelSearcher searcher : searchers) {
+                String solution = searcher.solve(state);
+                assertEquals(length, solution.length());
+                assertArrayEquals(TestStates.solved(), TestStates.apply(state, solution));
+            }
+        }
+    }
+    
+    @Test
+    public void solvedStateNeedsNoMoves() {
+        assertEquals("", new ParallelSearcher(TestStates.heuristic(), POOL).solve(TestStates.solved()));
+    }
+    
+}
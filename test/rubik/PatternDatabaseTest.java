@@ -0,0 +1,77 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Byte and packed tables, in memory and mapped from a file.
+ */
+public class PatternDatabaseTest {
+    
+    private static final int KIND = PatternDatabase.edges(0x7);
+    
+    @TempDir
+    Path directory;
+    
+    /**
+     * @return table of random depths in [0, 12]
+     */
+    private static PatternDatabase randomTable() {
+        PatternDatabase table = PatternDatabase.allocate(KIND);
+        Random random = new Random(6);
+        for (long i = 0; i < table.size(); i++)
+            table.set(i, (byte)random.nextInt(13));
+        return table;
+    }
+    
+    @Test
+    public void packedEntriesKeepDepthModuloThree() {
+        PatternDatabase table = randomTable();
+        PatternDatabase packed = table.pack();
+        assertTrue(packed.isPacked());
+        assertEquals(table.size(), packed.size());
+        for (long i = 0; i < table.size(); i++)
+            assertEquals(table.get(i) % 3, packed.get(i));
+    }
+    
+    @Test
+    public void writtenTablesMapBack() throws IOException {
+        PatternDatabase table = randomTable();
+        for (PatternDatabase written : new PatternDatabase[] {table, table.pack()}) {
+            Path file = Files.createTempFile(directory, "table", ".pdb");
+            written.write(file.toString());
+            PatternDatabase mapped = PatternDatabase.map(file.toString(), KIND);
+            assertEquals(written.isPacked(), mapped.isPacked());
+            assertEquals(written.size(), mapped.size());
+            for (long i = 0; i < written.size(); i++)
+                assertEquals(written.get(i), mapped.get(i));
+        }
+    }
+    
+    @Test
+    public void checksumIsOnlyCheckedWhenVerifying() throws IOException {
+        Path file = Files.createTempFile(directory, "table", ".pdb");
+        randomTable().write(file.toString());
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        
+        assertEquals(PatternDatabase.size(KIND), PatternDatabase.map(file.toString(), KIND).size());
+        assertThrows(IOException.class, () -> PatternDatabase.map(file.toString(), KIND, true));
+    }
+    
+    @Test
+    public void byteTablesAreNotPacked() {
+        assertFalse(PatternDatabase.allocate(KIND).isPacked());
+    }
+    
+}
@@ -0,0 +1,90 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Rankers and unrankers of every table kind.
+ */
+public class RankingTest {
+    
+    private static final int[] EDGE_KINDS = {
+        PatternDatabase.FIRST_EDGES, PatternDatabase.SECOND_EDGES,
+        PatternDatabase.edges(0x07f), PatternDatabase.edges(0x3)
+    };
+    
+    @Test
+    public void solvedCubeRanksToZeroCorners() {
+        assertEquals(0, KorfAlgorithm.rankCorners(TestStates.solved()));
+    }
+    
+    @Test
+    public void cornerIndicesRoundTrip() {
+        Random random = new Random(1);
+        byte[] state = TestStates.solved();
+        for (int i = 0; i < 10000; i++) {
+            int index = random.nextInt(KorfAlgorithm.MAX_CORNER_STATES);
+            KorfAlgorithm.unrankCorners(index, state);
+            assertEquals(index, KorfAlgorithm.rankCorners(state));
+        }
+    }
+    
+    @Test
+    public void edgeIndicesRoundTrip() {
+        Random random = new Random(2);
+        for (int kind : EDGE_KINDS) {
+            byte[] state = TestStates.solved();
+            long size = PatternDatabase.size(kind);
+            for (int i = 0; i < 10000; i++) {
+                long index = (long)(random.nextDouble() * size);
+                PatternDatabase.unrank(kind, index, state);
+                assertEquals(index, PatternDatabase.rank(kind, state));
+            }
+        }
+    }
+    
+    @Test
+    public void ranksOfScrambledStatesAreInRange() {
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            byte[] state = TestStates.scramble(random, 25);
+            for (int kind : EDGE_KINDS) {
+                long index = PatternDatabase.rank(kind, state);
+                assertTrue(index >= 0 && index < PatternDatabase.size(kind));
+            }
+            int corners = Symmetry.rankCorners(state);
+            assertTrue(corners >= 0 && corners < Symmetry.MAX_CORNER_STATES);
+        }
+    }
+    
+    @Test
+    public void coordinateRanksMatchFaceletRanks() {
+        Random random = new Random(4);
+        byte[] edges = new byte[12];
+        for (int i = 0; i < 1000; i++) {
+            byte[] state = TestStates.scramble(random, 25);
+            CubieCube cube = new CubieCube(state);
+            cube.getEdges(edges);
+            for (int kind : new int[] {PatternDatabase.CORNERS, PatternDatabase.SYM_CORNERS,
+                    PatternDatabase.FIRST_EDGES, PatternDatabase.SECOND_EDGES}) {
+                assertEquals(PatternDatabase.rank(kind, state),
+                        PatternDatabase.rank(kind, cube.cornerPermutation(), cube.cornerOrientation(), edges));
+            }
+        }
+    }
+    
+    @Test
+    public void symmetricCornerIndicesRoundTrip() {
+        Random random = new Random(5);
+        byte[] state = TestStates.solved();
+        for (int i = 0; i < 1000; i++) {
+            int index = Symmetry.rankCorners(TestStates.scramble(random, 25));
+            Symmetry.unrankCorners(index, state);
+            assertEquals(index, Symmetry.rankCorners(state));
+        }
+    }
+    
+}
@@ -0,0 +1,84 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Distributed solves over workers running on threads of this process.
+ */
+public class SearchCoordinatorTest {
+    
+    private static final List<InetSocketAddress> WORKERS = new ArrayList<>();
+    
+    @BeforeAll
+    public static void startWorkers() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            int port;
+            try (ServerSocket free = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+                port = free.getLocalPort();
+            }
+            SearchWorker worker = new SearchWorker(TestStates.heuristic(), port);
+            Thread thread = new Thread(() -> {
+                try {
+                    worker.serve();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, "test-worker-" + port);
+            thread.setDaemon(true);
+            thread.start();
+            WORKERS.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        }
+    }
+    
+    @Test
+    public void distributedSolutionsAreOptimal() throws IOException {
+        Random random = new Random(25);
+        Searcher sequential = new Searcher(TestStates.heuristic(), Searcher.NO_DUAL);
+        try (SearchCoordinator coordinator = new SearchCoordinator(TestStates.heuristic(), WORKERS)) {
+            for (int i = 0; i < 5; i++) {
+                byte[] state = TestStates.scramble(random, 7);
+                String solution = coordinator.solve(state);
+                assertEquals(sequential.solve(state).length(), solution.length());
+                assertArrayEquals(TestStates.solved(), TestStates.apply(state, solution));
+            }
+        }
+    }
+    
+    @Test
+    public void malformedJobsCloseTheConnection() throws IOException {
+        try (Socket socket = new Socket(WORKERS.get(0).getAddress(), WORKERS.get(0).getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeByte(SearchWorker.SOLVE);
+            out.writeInt(1);
+            out.write(TestStates.solved());
+            out.writeByte(SearchWorker.JOB);
+            out.writeInt(1);
+            out.writeInt(5);
+            out.writeByte(1);
+            out.writeByte(CubieCube.MOVES);
+            out.flush();
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+    
+    @Test
+    public void workersAreRequired() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SearchCoordinator(TestStates.heuristic(), new ArrayList<>()));
+    }
+    
+}
@@ -0,0 +1,84 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Searches with a heuristic of all zeros, which is admissible and needs no
+ * generated tables, and with small edge tables, so only short scrambles are
+ * solved.
+ */
+public class SearcherTest {
+    
+    private static final Heuristic ZERO = new Heuristic(PatternDatabase.allocate(PatternDatabase.edges(0x3)));
+    
+    @Test
+    public void solvesShortScrambles() {
+        Random random = new Random(16);
+        Searcher searcher = new Searcher(ZERO, Searcher.NO_DUAL);
+        for (int length = 0; length <= 3; length++) {
+            byte[] state = TestStates.scramble(random, length);
+            String solution = searcher.solve(state);
+            assertTrue(solution.length() / 2 <= length);
+            assertArrayEquals(TestStates.solved(), TestStates.apply(state, solution));
+        }
+    }
+    
+    @Test
+    public void dualLookupsAndTranspositionsKeepSolutionsOptimal() {
+        Random random = new Random(21);
+        Heuristic heuristic = TestStates.heuristic();
+        Searcher plain = new Searcher(heuristic, Searcher.NO_DUAL);
+        Searcher[] searchers = {
+            new Searcher(heuristic, Searcher.DUAL),
+            new Searcher(heuristic, Searcher.LAZY_DUAL),
+            new Searcher(heuristic, Searcher.NO_DUAL, new TranspositionTable(16)),
+            new Searcher(heuristic, Searcher.LAZY_DUAL, new TranspositionTable(16))
+        };
+        for (int i = 0; i < 10; i++) {
+            byte[] state = TestStates.scramble(random, 7);
+            int length = plain.solve(state).length();
+            for (Searcher searcher : searchers) {
+                String solution = searcher.solve(state);
+                assertEquals(length, solution.length());
+                assertArrayEquals(TestStates.solved(), TestStates.apply(state, solution));
+            }
+        }
+    }
+    
+    @Test
+    public void searchStopsAtMaxDepth() {
+        Searcher searcher = new Searcher(ZERO, Searcher.NO_DUAL);
+        searcher.start(TestStates.scramble(new Random(18), 10));
+        assertEquals(Searcher.MAX_DEPTH + 1, searcher.search(Searcher.MAX_DEPTH, 0, Searcher.MAX_DEPTH, -1));
+    }
+    
+    @Test
+    public void stoppedSearchIsCancelled() {
+        AtomicBoolean stop = new AtomicBoolean(true);
+        Searcher searcher = new Searcher(ZERO, stop, Searcher.NO_DUAL);
+        List<SearchMetrics> solves = new ArrayList<>();
+        searcher.setListener(new SearchListener() {
+            @Override
+            public void solveFinished(SearchMetrics metrics) {
+                solves.add(metrics);
+            }
+        });
+        
+        byte[] state = TestStates.scramble(new Random(17), 10);
+        assertThrows(CancellationException.class, () -> searcher.solve(state));
+        assertEquals(1, solves.size());
+        assertTrue(solves.get(0).isCancelled());
+        assertEquals(-1, solves.get(0).bound());
+    }
+    
+}
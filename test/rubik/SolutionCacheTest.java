@@ -0,0 +1,92 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Solutions cached for conjugate and inverse states, and the cache file.
+ */
+public class SolutionCacheTest {
+    
+    private static final String SOLVED = "RRRRRRRRRGGGYYYBBBGGGYYYBBBGGGYYYBBBOOOOOOOOOWWWWWWWWW";
+    
+    @TempDir
+    Path directory;
+    
+    /**
+     * @param lines lines of the cache file
+     * @return cache loaded from them
+     * @throws IOException
+     */
+    private SolutionCache load(String... lines) throws IOException {
+        Path file = directory.resolve("cache.txt");
+        Files.write(file, List.of(lines));
+        SolutionCache cache = new SolutionCache(16, true, file);
+        cache.load();
+        return cache;
+    }
+    
+    @Test
+    public void conjugateAndInverseStatesHitTheCache() {
+        Random random = new Random(24);
+        Searcher searcher = new Searcher(TestStates.heuristic(), Searcher.NO_DUAL);
+        for (int i = 0; i < 5; i++) {
+            SolutionCache cache = new SolutionCache(16, true, null);
+            byte[] state = TestStates.scramble(random, 6);
+            String solution = cache.solve(state, searcher::solve);
+            
+            byte[][] related = new byte[Symmetry.FULL_COUNT + 1][];
+            for (int s = 0; s < Symmetry.FULL_COUNT; s++)
+                related[s] = Symmetry.conjugate(state, s);
+            related[Symmetry.FULL_COUNT] = new CubieCube(state).inverse().toFacelets();
+            for (byte[] other : related) {
+                String cached = cache.get(other);
+                assertEquals(solution.length(), cached.length());
+                assertArrayEquals(TestStates.solved(), TestStates.apply(other, cached));
+            }
+            assertEquals(1, cache.size());
+            assertEquals(1, cache.misses());
+        }
+    }
+    
+    @Test
+    public void savedEntriesLoad() throws IOException {
+        byte[] state = Cube.rotate(TestStates.solved(), (byte)0, 1);
+        Path file = directory.resolve("cache.txt");
+        SolutionCache cache = new SolutionCache(16, true, file);
+        cache.put(state, "03");
+        cache.save();
+        
+        SolutionCache loaded = new SolutionCache(16, true, file);
+        loaded.load();
+        assertEquals(1, loaded.size());
+        assertEquals("03", loaded.get(state));
+    }
+    
+    @Test
+    public void solvedStateLoadsWithAnEmptySolution() throws IOException {
+        assertEquals("", load(SOLVED + "\t").get(TestStates.solved()));
+    }
+    
+    @Test
+    public void malformedSolutionsAreRejected() {
+        for (String solution : new String[] {"0", "0x", "61", "00", "04", "0312a"})
+            assertThrows(IOException.class, () -> load(SOLVED + "\t" + solution));
+    }
+    
+    @Test
+    public void invalidStatesAreRejected() {
+        assertThrows(IOException.class, () -> load(SOLVED.replaceFirst("RG", "GR") + "\t01"));
+        assertThrows(IOException.class, () -> load(SOLVED));
+    }
+    
+}
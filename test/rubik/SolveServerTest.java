@@ -0,0 +1,113 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Requests to a solve server on a free port.
+ */
+public class SolveServerTest {
+    
+    private SolveServer server;
+    
+    @BeforeEach
+    public void start() throws IOException {
+        server = new SolveServer(TestStates.heuristic(), 0, 2, 4, 10000);
+        server.start();
+    }
+    
+    @AfterEach
+    public void stop() {
+        server.close();
+    }
+    
+    /**
+     * @param state cube state
+     * @return colors of the facelets, as read by Cube.parse
+     */
+    private static String format(byte[] state) {
+        StringBuilder text = new StringBuilder();
+        for (byte color : state)
+            text.append("RGYBOW".charAt(color));
+        return text.toString();
+    }
+    
+    /**
+     * Posts a request and waits for its response.
+     * @param path path and query of the request
+     * @param body request body
+     * @return status code, a tab and the response text
+     * @throws IOException
+     */
+    private String post(String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)new URL(
+                "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.port() + path)
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return status + "\t" + new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+    }
+    
+    @Test
+    public void solvesCubes() throws IOException {
+        byte[] state = TestStates.scramble(new Random(26), 6);
+        String[] response = post("/solve", format(state)).split("\t", -1);
+        assertEquals("200", response[0]);
+        assertArrayEquals(TestStates.solved(), TestStates.apply(state, response[1]));
+    }
+    
+    @Test
+    public void validatesCubes() throws IOException {
+        assertEquals("200\ttrue", post("/validate", format(TestStates.solved())));
+        byte[] swapped = TestStates.swap(TestStates.solved(), 1, 19);
+        assertTrue(post("/validate", format(swapped)).startsWith("200\tfalse"));
+        assertTrue(post("/solve", format(swapped)).startsWith("400\t"));
+        assertTrue(post("/solve", "RGB").startsWith("400\t"));
+    }
+    
+    @Test
+    public void slowSolvesTimeOut() throws IOException {
+        byte[] state = TestStates.scramble(new Random(27), 30);
+        assertEquals("504\tTimed out", post("/solve?timeout=50", format(state)));
+    }
+    
+    @Test
+    public void stalledClientsAreDroppedAtTheirDeadline() throws IOException {
+        Socket[] stalled = new Socket[SolveServer.READERS + 2];
+        try {
+            for (int i = 0; i < stalled.length; i++) {
+                stalled[i] = new Socket(InetAddress.getLoopbackAddress(), server.port());
+                stalled[i].getOutputStream().write(("POST /solve?timeout=200 HTTP/1.1\r\nHost: localhost\r\n"
+                        + "Content-Length: 54\r\n\r\nRRR").getBytes(StandardCharsets.US_ASCII));
+            }
+            assertEquals("200\ttrue", post("/validate", format(TestStates.solved())));
+            assertEquals(-1, stalled[0].getInputStream().read());
+        } finally {
+            for (Socket socket : stalled) {
+                if (socket != null)
+                    socket.close();
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,76 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Invariants of the 48 symmetries.
+ */
+public class SymmetryTest {
+    
+    @Test
+    public void solvedCubeIsSymmetric() {
+        for (int s = 0; s < Symmetry.FULL_COUNT; s++)
+            assertArrayEquals(TestStates.solved(), Symmetry.conjugate(TestStates.solved(), s));
+    }
+    
+    @Test
+    public void inverseUndoesSymmetry() {
+        Random random = new Random(11);
+        byte[] state = TestStates.scramble(random, 25);
+        for (int s = 0; s < Symmetry.FULL_COUNT; s++) {
+            byte[] conjugate = Symmetry.conjugate(state, s);
+            assertArrayEquals(state, Symmetry.conjugate(conjugate, Symmetry.inverse(s)));
+        }
+    }
+    
+    @Test
+    public void conjugateMovesCommuteWithConjugation() {
+        Random random = new Random(12);
+        byte[] state = TestStates.scramble(random, 25);
+        for (int s = 0; s < Symmetry.FULL_COUNT; s++) {
+            for (int move = 0; move < CubieCube.MOVES; move++) {
+                int conjugate = Symmetry.conjugateMove(move, s);
+                byte[] turned = Cube.rotate(state, (byte)(move / 3), move % 3 + 1);
+                assertArrayEquals(Symmetry.conjugate(turned, s),
+                        Cube.rotate(Symmetry.conjugate(state, s), (byte)(conjugate / 3), conjugate % 3 + 1));
+            }
+        }
+    }
+    
+    @Test
+    public void conjugatesShareSymmetricCornerIndex() {
+        Random random = new Random(13);
+        for (int i = 0; i < 200; i++) {
+            byte[] state = TestStates.scramble(random, 25);
+            int index = Symmetry.rankCorners(state);
+            for (int s = 0; s < Symmetry.COUNT; s++)
+                assertEquals(index, Symmetry.rankCorners(Symmetry.conjugate(state, s)));
+        }
+    }
+    
+    @Test
+    public void symmetricCornerIndicesAreReachable() {
+        //Half turns of the red and orange faces and the solved state have symmetric corner permutations
+        byte[] symmetric = Cube.rotate(Cube.rotate(TestStates.solved(), (byte)0, 2), (byte)4, 2);
+        List<byte[]> states = new ArrayList<>(List.of(TestStates.solved(), symmetric));
+        Random random = new Random(14);
+        for (int i = 0; i < 200; i++)
+            states.add(TestStates.scramble(random, 25));
+        
+        byte[] representative = new byte[54];
+        for (byte[] state : states) {
+            int index = Symmetry.rankCorners(state);
+            Symmetry.unrankCorners(index, representative);
+            assertEquals(index, Symmetry.rankCorners(representative));
+        }
+        assertTrue(Symmetry.REACHABLE_CORNER_STATES < Symmetry.MAX_CORNER_STATES);
+    }
+    
+}
@@ -0,0 +1,82 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Breadth-first table generation, with a frontier and by scanning.
+ */
+public class TableGeneratorTest {
+    
+    private static final int KIND = PatternDatabase.edges(0xf);
+    
+    /**
+     * @param a first table
+     * @param b second table
+     */
+    private static void assertSameEntries(PatternDatabase a, PatternDatabase b) {
+        assertEquals(a.size(), b.size());
+        for (long i = 0; i < a.size(); i++)
+            assertEquals(a.get(i), b.get(i));
+    }
+    
+    @Test
+    public void frontierAndScanBuildTheSameTable() {
+        PatternDatabase frontier = new TableGenerator(KIND, 4).generate();
+        assertSameEntries(frontier, new TableGenerator(KIND, 4).generateByScan());
+        assertSameEntries(frontier, new TableGenerator(KIND, 1).generate());
+    }
+    
+    @Test
+    public void entriesAreDistancesToTheGoal() {
+        PatternDatabase table = new TableGenerator(KIND, 2).generate();
+        for (long i = 0; i < table.size(); i++)
+            assertNotEquals(KorfAlgorithm.UNSEEN, table.get(i));
+        assertEquals(0, table.get(PatternDatabase.rank(KIND, TestStates.solved())));
+        
+        //A move changes the distance by at most one, and never past the moves made
+        Random random = new Random(22);
+        for (int walk = 0; walk < 50; walk++) {
+            byte[] state = TestStates.solved();
+            int previous = 0;
+            for (int moves = 1; moves <= 20; moves++) {
+                state = Cube.rotate(state, (byte)random.nextInt(6), random.nextInt(3) + 1);
+                int depth = table.get(PatternDatabase.rank(KIND, state));
+                assertTrue(depth <= moves);
+                assertTrue(Math.abs(depth - previous) <= 1);
+                previous = depth;
+            }
+        }
+    }
+    
+    @Test
+    public void progressReachesEveryReachableState() {
+        List<GenerationProgress> layers = new ArrayList<>();
+        TableGenerator generator = new TableGenerator(KIND, 2);
+        generator.setListener(layers::add);
+        generator.generateByScan();
+        
+        GenerationProgress last = layers.get(layers.size() - 1);
+        assertTrue(last.isFinished());
+        assertEquals(PatternDatabase.states(KIND), last.total());
+        assertEquals(1.0, last.fillRatio());
+        long total = 0;
+        for (GenerationProgress layer : layers)
+            total += layer.states();
+        assertEquals(last.total(), total);
+    }
+    
+    @Test
+    public void frontierRejectsTablesLargerThanAnArray() {
+        TableGenerator generator = new TableGenerator(PatternDatabase.edges(0xff));
+        assertThrows(IllegalArgumentException.class, generator::generate);
+    }
+    
+}
@@ -0,0 +1,82 @@
+package rubik;
+
+import java.util.Random;
+
+/**
+ * Cube states shared by the tests.
+ */
+final class TestStates {
+    
+    /**
+     * Four tables of three edges each, which cover every edge and are
+     * generated in milliseconds.
+     */
+    static final int[] EDGE_KINDS = {
+        PatternDatabase.edges(0x7), PatternDatabase.edges(0x38),
+        PatternDatabase.edges(0x1c0), PatternDatabase.edges(0xe00)
+    };
+    
+    private static Heuristic heuristic;
+    
+    private TestStates() {
+    }
+    
+    /**
+     * @return heuristic of the EDGE_KINDS tables, generated once
+     */
+    static synchronized Heuristic heuristic() {
+        if (heuristic == null) {
+            PatternDatabase[] tables = new PatternDatabase[EDGE_KINDS.length];
+            for (int i = 0; i < tables.length; i++)
+                tables[i] = new TableGenerator(EDGE_KINDS[i], 2).generate();
+            heuristic = new Heuristic(tables);
+        }
+        return heuristic;
+    }
+    
+    /**
+     * @return state of the solved cube
+     */
+    static byte[] solved() {
+        return new Cube().cube.clone();
+    }
+    
+    /**
+     * Applies random face turns to the solved cube.
+     * @param random source of the moves
+     * @param length number of moves
+     * @return scrambled state
+     */
+    static byte[] scramble(Random random, int length) {
+        byte[] state = solved();
+        for (int i = 0; i < length; i++)
+            state = Cube.rotate(state, (byte)random.nextInt(6), random.nextInt(3) + 1);
+        return state;
+    }
+    
+    /**
+     * Exchanges two facelets of a state.
+     * @param state cube state, changed in place
+     * @param a first facelet
+     * @param b second facelet
+     * @return the state
+     */
+    static byte[] swap(byte[] state, int a, int b) {
+        byte color = state[a];
+        state[a] = state[b];
+        state[b] = color;
+        return state;
+    }
+
+/**
+     * @param state cube state
+     * @param solution face and turn digit pairs
+     * @return state after the solution
+     */
+    static byte[] apply(byte[] state, String solution) {
+        for (int i = 0; i < solution.length(); i += 2)
+            state = Cube.rotate(state, (byte)(solution.charAt(i) - '0'), solution.charAt(i + 1) - '0');
+        return state;
+    }
+    
+}
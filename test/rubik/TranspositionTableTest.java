@@ -0,0 +1,63 @@
+package rubik;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruning of states already searched in the same iteration.
+ */
+public class TranspositionTableTest {
+    
+    private static final long HASH = TranspositionTable.mix(12345);
+    
+    @Test
+    public void revisitsAtNoLowerCostArePruned() {
+        TranspositionTable table = new TranspositionTable(8);
+        int stamp = table.nextStamp();
+        assertFalse(table.visit(HASH, stamp, 5));
+        assertTrue(table.visit(HASH, stamp, 5));
+        assertTrue(table.visit(HASH, stamp, 6));
+        assertFalse(table.visit(HASH, stamp, 4));
+        assertTrue(table.visit(HASH, stamp, 5));
+    }
+    
+    @Test
+    public void earlierIterationsAreIgnored() {
+        TranspositionTable table = new TranspositionTable(8);
+        assertFalse(table.visit(HASH, table.nextStamp(), 5));
+        assertFalse(table.visit(HASH, table.nextStamp(), 5));
+    }
+    
+    @Test
+    public void collisionsKeepTheSmallerCost() {
+        TranspositionTable table = new TranspositionTable(8);
+        int stamp = table.nextStamp();
+        //Same slot, different upper bits
+        long other = HASH ^ 1L << 60;
+        assertFalse(table.visit(HASH, stamp, 3));
+        assertFalse(table.visit(other, stamp, 7));
+        assertTrue(table.visit(HASH, stamp, 3));
+        assertFalse(table.visit(other, stamp, 2));
+        assertTrue(table.visit(other, stamp, 2));
+    }
+    
+    @Test
+    public void stampsWrapWithoutReusingEntries() {
+        TranspositionTable table = new TranspositionTable(8);
+        int stamp = table.nextStamp();
+        table.visit(HASH, stamp, 5);
+        for (int i = 0; i < 1 << 16; i++)
+            stamp = table.nextStamp();
+        assertFalse(table.visit(HASH, stamp, 5));
+    }
+    
+    @Test
+    public void sizeIsChecked() {
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(31));
+    }
+    
+}